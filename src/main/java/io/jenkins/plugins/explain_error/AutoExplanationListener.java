@@ -0,0 +1,104 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Explains failed builds in the background as soon as they complete, when enabled in the global configuration.
+ * The explanation runs as SYSTEM on the executor of {@link ExplanationJobs} for automatic explanations, so the executor
+ * of the build is released right away and explanations requested by users do not wait behind it.
+ */
+@Extension
+public class AutoExplanationListener extends RunListener<Run<?, ?>> {
+
+    private static final Logger LOGGER = Logger.getLogger(AutoExplanationListener.class.getName());
+
+    @Override
+    public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        if (!config.isExplanationAvailable() || !config.isEnableAutoExplanation() || !isFailed(run.getResult())
+                || hasExplanation(run)) {
+            return;
+        }
+        String fullName = run.getParent().getFullName();
+        if (!matches(fullName, config.getAutoExplanationIncludes(), true)
+                || matches(fullName, config.getAutoExplanationExcludes(), false)) {
+            return;
+        }
+        try {
+            ExplanationJobs.get().submitAutomatic(run.getExternalizableId(), job -> explain(job, run));
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("Too many explanations are in progress, not explaining " + run.getFullDisplayName());
+        }
+    }
+
+    private static void explain(ExplanationJobs.Job job, Run<?, ?> run) {
+        if (hasExplanation(run)) {
+            job.complete("success", "Unknown", "The build was explained in the meantime.");
+            return;
+        }
+        ErrorExplainer explainer = new ErrorExplainer();
+        try {
+            String errorText = ConsoleExplainErrorAction.readErrorText(run, ConsoleExplainErrorAction.DEFAULT_MAX_LINES);
+            ErrorExplanationAction action = explainer.explainErrorText(errorText, run);
+            job.complete("success", action.getProviderName(), action.getExplanation());
+            LOGGER.fine("Explained " + run.getFullDisplayName() + " in the background.");
+        } catch (ExplanationException e) {
+            LOGGER.fine("Failed to explain " + run.getFullDisplayName() + " in the background: " + e.getMessage());
+            job.complete(e.getLevel(), explainer.getProviderName(), e.getMessage());
+        } catch (IOException e) {
+            LOGGER.warning("Failed to explain " + run.getFullDisplayName() + " in the background: " + e.getMessage());
+            job.complete("error", "Unknown", "Error: " + e.getMessage());
+        }
+    }
+
+    private static boolean isFailed(@CheckForNull Result result) {
+        return result == Result.FAILURE || result == Result.UNSTABLE || result == Result.ABORTED;
+    }
+
+    private static boolean hasExplanation(Run<?, ?> run) {
+        ErrorExplanationAction action = run.getAction(ErrorExplanationAction.class);
+        return action != null && action.hasValidExplanation();
+    }
+
+    /**
+     * Whether a job is one of the given jobs or in one of the given folders.
+     * @param fullName the full name of the job
+     * @param names full names of jobs and folders, one per line, where {@code *} matches any characters
+     * @param matchesIfEmpty the result if no names are given
+     * @return whether the job matches
+     */
+    static boolean matches(@NonNull String fullName, @CheckForNull String names, boolean matchesIfEmpty) {
+        if (names == null || names.isBlank()) {
+            return matchesIfEmpty;
+        }
+        for (String name : names.split("\\R")) {
+            name = name.trim().replaceAll("^/+|/+$", "");
+            if (name.isEmpty()) {
+                continue;
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String part : name.split("\\*", -1)) {
+                if (!regex.isEmpty()) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+            // a folder matches all jobs within
+            regex.append("(/.*)?");
+            if (Pattern.matches(regex.toString(), fullName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,158 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import jenkins.util.SystemProperties;
+
+/**
+ * Explains error logs that are too large for a single request in two steps: the logs are split into parts that fit
+ * into the context of the model, the parts are summarized in parallel, and the explanation is asked for from the
+ * summaries of all parts.
+ * The parts are summarized on the executor of {@link ExplanationJobs}. The calling thread summarizes parts as well,
+ * so the explanation makes progress even when all threads of the executor are busy.
+ */
+final class ChunkedExplainer {
+
+    /**
+     * Maximum number of parts that are summarized, the last ones are kept.
+     */
+    static final int MAX_CHUNKS = SystemProperties.getInteger(ChunkedExplainer.class.getName() + ".maxChunks", 16);
+
+    /**
+     * Share of the context length taken by the logs of one part, the rest is left for the prompt and the answer.
+     */
+    static final int CHUNK_CONTEXT_PERCENT = 50;
+
+    private ChunkedExplainer() {
+    }
+
+    /**
+     * A request summarizing a single part.
+     */
+    @FunctionalInterface
+    interface Summarizer {
+        String summarize(String chunk, int part, int parts) throws ExplanationException;
+    }
+
+    /**
+     * Get the number of characters of error logs that fit into one request to a provider, estimating four characters
+     * per token.
+     * @param provider the provider
+     * @return the number of characters
+     */
+    static int getChunkChars(@NonNull BaseAIProvider provider) {
+        long tokens = (long) provider.getEffectiveContextLength() * CHUNK_CONTEXT_PERCENT / 100;
+        return (int) Math.min(Math.max(tokens, 256) * 4, Integer.MAX_VALUE / 2);
+    }
+
+    /**
+     * Split error logs into parts at line ends. Lines longer than a part are split as well.
+     * @param errorLogs the error logs
+     * @param chunkChars maximum number of characters of a part
+     * @return the parts in order, a single part if the logs fit into one
+     */
+    @NonNull
+    static List<String> split(@NonNull String errorLogs, int chunkChars) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (errorLogs.length() - start > chunkChars) {
+            int end = errorLogs.lastIndexOf('\n', start + chunkChars - 1);
+            if (end < start) {
+                end = start + chunkChars - 1;
+            }
+            chunks.add(errorLogs.substring(start, end + 1));
+            start = end + 1;
+        }
+        if (start < errorLogs.length() || chunks.isEmpty()) {
+            chunks.add(errorLogs.substring(start));
+        }
+        return chunks;
+    }
+
+    /**
+     * Summarize the parts of error logs in parallel.
+     * @param chunks the parts, at most {@link #MAX_CHUNKS} of the last ones are summarized
+     * @param parallelism maximum number of parts summarized at the same time
+     * @param listener receives a note about the parts
+     * @param summarizer the request summarizing a single part
+     * @return the summaries of the parts, each headed by its number
+     * @throws ExplanationException the first failure of a part, the remaining parts are skipped
+     */
+    @NonNull
+    static String summarize(@NonNull List<String> chunks, int parallelism, @NonNull TaskListener listener,
+                            @NonNull Summarizer summarizer) throws ExplanationException {
+        if (chunks.size() > MAX_CHUNKS) {
+            listener.getLogger().println("Only the last " + MAX_CHUNKS + " of " + chunks.size()
+                    + " parts of the error logs are summarized.");
+            chunks = chunks.subList(chunks.size() - MAX_CHUNKS, chunks.size());
+        }
+        List<String> parts = chunks;
+        int count = parts.size();
+        String[] summaries = new String[count];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<ExplanationException> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(count);
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < count) {
+                try {
+                    if (failure.get() == null) {
+                        summaries[i] = summarizer.summarize(parts.get(i), i + 1, count);
+                    }
+                } catch (ExplanationException e) {
+                    failure.compareAndSet(null, e);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, new ExplanationException("error",
+                            "Summarizing the error logs failed: " + e.getMessage(), e));
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        listener.getLogger().println("Summarizing the error logs in " + count + " parts.");
+        ThreadPoolExecutor executor = ExplanationJobs.get().getExecutor();
+        List<Future<?>> helpers = new ArrayList<>();
+        try {
+            for (int i = 1; i < Math.min(parallelism, count); i++) {
+                try {
+                    helpers.add(executor.submit(worker));
+                } catch (RejectedExecutionException e) {
+                    // the calling thread does the remaining work
+                    break;
+                }
+            }
+            worker.run();
+            // wait for the parts still being summarized by the helpers
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExplanationException("error", "Summarizing the error logs was interrupted.", e);
+        } finally {
+            for (Future<?> helper : helpers) {
+                helper.cancel(true);
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append("\n\n");
+            }
+            sb.append("Part ").append(i + 1).append(" of ").append(count).append(":\n").append(summaries[i]);
+        }
+        return sb.toString();
+    }
+}
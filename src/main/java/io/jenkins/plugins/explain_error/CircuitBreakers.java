@@ -0,0 +1,231 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.SystemProperties;
+
+/**
+ * A circuit breaker per AI provider, so that requests fail fast while a provider is down or too slow instead of each
+ * waiting for its timeout.
+ * A breaker opens when the share of failed or slow calls among the recent calls reaches its threshold. While open,
+ * requests are rejected immediately. After a while a few trial requests are let through (half open), which either
+ * close the breaker again or keep it open.
+ */
+@Extension
+public class CircuitBreakers {
+
+    private static final String PREFIX = CircuitBreakers.class.getName();
+
+    /** Number of recent calls the rates are computed from. */
+    static final int WINDOW_SIZE = SystemProperties.getInteger(PREFIX + ".windowSize", 20);
+    /** Minimum number of recent calls before the breaker can open. */
+    static final int MINIMUM_CALLS = SystemProperties.getInteger(PREFIX + ".minimumCalls", 5);
+    /** Percentage of failed calls that opens the breaker. */
+    static final int FAILURE_RATE_THRESHOLD = SystemProperties.getInteger(PREFIX + ".failureRateThreshold", 50);
+    /** Percentage of slow calls that opens the breaker. */
+    static final int SLOW_CALL_RATE_THRESHOLD = SystemProperties.getInteger(PREFIX + ".slowCallRateThreshold", 80);
+    /** Duration from which a call counts as slow. */
+    static final int SLOW_CALL_SECONDS = SystemProperties.getInteger(PREFIX + ".slowCallSeconds", 60);
+    /** How long the breaker stays open before trial calls are let through. */
+    static final int OPEN_SECONDS = SystemProperties.getInteger(PREFIX + ".openSeconds", 60);
+    /** Number of successful trial calls needed to close the breaker again. */
+    static final int HALF_OPEN_CALLS = SystemProperties.getInteger(PREFIX + ".halfOpenCalls", 2);
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public static CircuitBreakers get() {
+        return ExtensionList.lookupSingleton(CircuitBreakers.class);
+    }
+
+    /**
+     * Get the breaker of a provider.
+     * @param provider the provider
+     * @return the breaker
+     */
+    @NonNull
+    public CircuitBreaker forProvider(@NonNull BaseAIProvider provider) {
+        return breakers.computeIfAbsent(ExplanationScheduler.getKey(provider), name -> new CircuitBreaker(name,
+                WINDOW_SIZE, MINIMUM_CALLS, FAILURE_RATE_THRESHOLD, SLOW_CALL_RATE_THRESHOLD,
+                TimeUnit.SECONDS.toMillis(SLOW_CALL_SECONDS), TimeUnit.SECONDS.toMillis(OPEN_SECONDS), HALF_OPEN_CALLS));
+    }
+
+    /**
+     * Get the breakers of all providers that have been called.
+     * @return the breakers
+     */
+    @NonNull
+    public List<CircuitBreaker> getBreakers() {
+        return new ArrayList<>(breakers.values());
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * The breaker of one provider.
+     */
+    public static final class CircuitBreaker {
+        private final String name;
+        private final int minimumCalls;
+        private final int failureRateThreshold;
+        private final int slowCallRateThreshold;
+        private final long slowCallMillis;
+        private final long openMillis;
+        private final int halfOpenCalls;
+
+        /**
+         * Outcomes of the recent calls, a ring buffer.
+         */
+        private final boolean[] failed;
+        private final boolean[] slow;
+        private int calls;
+        private int next;
+
+        private State state = State.CLOSED;
+        private long openedAt;
+        private int trialsInFlight;
+        private int trialSuccesses;
+        private long rejected;
+
+        CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                       int slowCallRateThreshold, long slowCallMillis, long openMillis, int halfOpenCalls) {
+            this.name = name;
+            this.minimumCalls = Math.max(minimumCalls, 1);
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallMillis = slowCallMillis;
+            this.openMillis = openMillis;
+            this.halfOpenCalls = Math.max(halfOpenCalls, 1);
+            this.failed = new boolean[Math.max(windowSize, 1)];
+            this.slow = new boolean[failed.length];
+        }
+
+        /**
+         * Check whether a call may be made.
+         * @throws ExplanationException if the breaker is open
+         */
+        public synchronized void acquirePermission() throws ExplanationException {
+            if (state == State.OPEN) {
+                long remaining = openedAt + openMillis - System.currentTimeMillis();
+                if (remaining > 0) {
+                    rejected++;
+                    throw new ExplanationException("error", "The AI provider " + name + " is unavailable after"
+                            + " repeated failures or slow responses. Requests are skipped for another "
+                            + TimeUnit.MILLISECONDS.toSeconds(remaining + 999) + " seconds.");
+                }
+                state = State.HALF_OPEN;
+                trialsInFlight = 0;
+                trialSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsInFlight >= halfOpenCalls) {
+                    rejected++;
+                    throw new ExplanationException("error", "The AI provider " + name + " is being checked after"
+                            + " repeated failures or slow responses. The request was skipped.");
+                }
+                trialsInFlight++;
+            }
+        }
+
+        /**
+         * Record the outcome of a permitted call.
+         * @param success whether the call succeeded
+         * @param durationMillis how long the call took
+         */
+        public synchronized void record(boolean success, long durationMillis) {
+            boolean isSlow = durationMillis >= slowCallMillis;
+            if (state == State.HALF_OPEN) {
+                trialsInFlight = Math.max(trialsInFlight - 1, 0);
+                if (!success || isSlow) {
+                    open();
+                } else if (++trialSuccesses >= halfOpenCalls) {
+                    close();
+                }
+                return;
+            }
+            failed[next] = !success;
+            slow[next] = isSlow;
+            next = (next + 1) % failed.length;
+            calls = Math.min(calls + 1, failed.length);
+            if (state == State.CLOSED && calls >= minimumCalls
+                    && (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= slowCallRateThreshold)) {
+                open();
+            }
+        }
+
+        /**
+         * Release a permitted call without recording an outcome, e.g. when it was cancelled.
+         */
+        public synchronized void release() {
+            if (state == State.HALF_OPEN) {
+                trialsInFlight = Math.max(trialsInFlight - 1, 0);
+            }
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            calls = 0;
+            next = 0;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized State getState() {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                // the next call is a trial
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        /**
+         * @return percentage of failed calls among the recent calls
+         */
+        public synchronized int getFailureRate() {
+            return rate(failed);
+        }
+
+        /**
+         * @return percentage of slow calls among the recent calls
+         */
+        public synchronized int getSlowCallRate() {
+            return rate(slow);
+        }
+
+        public synchronized int getCalls() {
+            return calls;
+        }
+
+        public synchronized long getRejected() {
+            return rejected;
+        }
+
+        private int rate(boolean[] outcomes) {
+            if (calls == 0) {
+                return 0;
+            }
+            int count = 0;
+            for (int i = 0; i < calls; i++) {
+                if (outcomes[i]) {
+                    count++;
+                }
+            }
+            return count * 100 / calls;
+        }
+    }
+}
@@ -4,14 +4,21 @@ import com.google.common.annotations.VisibleForTesting;
 import hudson.model.Action;
 import hudson.model.Result;
 import hudson.model.Run;
+import jakarta.servlet.AsyncContext;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
+import jenkins.util.Timer;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 import org.kohsuke.stapler.interceptor.RequirePOST;
+import org.kohsuke.stapler.verb.GET;
 
 /**
  * Action to add "Explain Error" functionality to console output pages.
@@ -21,6 +28,17 @@ public class ConsoleExplainErrorAction implements Action {
 
     private static final Logger LOGGER = Logger.getLogger(ConsoleExplainErrorAction.class.getName());
 
+    /**
+     * Upper bound for how long {@link #doExplanationStatus} and {@link #doStatus} delay a response, and for how long
+     * {@link #doStreamExplanation} relays an explanation.
+     */
+    static final int MAX_WAIT_SECONDS = 30;
+
+    /**
+     * Number of lines of the console output explained unless requested otherwise.
+     */
+    static final int DEFAULT_MAX_LINES = 200;
+
     private final Run<?, ?> run;
 
     public ConsoleExplainErrorAction(Run<?, ?> run) {
@@ -68,20 +86,14 @@ public class ConsoleExplainErrorAction implements Action {
                 return;
             }
 
-            // Optionally allow maxLines as a parameter, default to 200
-            int maxLines = 200;
-            String maxLinesParam = req.getParameter("maxLines");
-            if (maxLinesParam != null) {
-                try { maxLines = Integer.parseInt(maxLinesParam); } catch (NumberFormatException ignore) {}
-            }
+            int maxLines = getMaxLines(req);
 
             // Fetch the last N lines of the log
-            java.util.List<String> logLines = run.getLog(maxLines);
-            String errorText = String.join("\n", logLines);
+            String errorText = readErrorText(run, maxLines);
 
             ErrorExplainer explainer = new ErrorExplainer();
             try {
-                ErrorExplanationAction action = explainer.explainErrorText(errorText, run);
+                ErrorExplanationAction action = explainer.explainErrorText(errorText, run, forceNew);
                 writeJsonResponse(rsp, "success", action.getProviderName(), action.getExplanation());
             } catch (ExplanationException ee) {
                 writeJsonResponse(rsp, ee.getLevel(), explainer.getProviderName(), ee.getMessage());
@@ -93,6 +105,229 @@ public class ConsoleExplainErrorAction implements Action {
         }
     }
 
+    /**
+     * AJAX endpoint to start explaining the error in the background.
+     * Returns JSON with the id of the queued job, or the result right away when an existing explanation is reused.
+     * The result is fetched with {@link #doExplanationStatus}.
+     */
+    @RequirePOST
+    public void doStartExplanation(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        try {
+            run.checkPermission(hudson.model.Item.READ);
+
+            GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+            if (!config.isEnableExplanation()) {
+                writeJsonResponse(rsp, "warning", "Unkown" , "AI error explanation is disabled in global configuration.");
+                return;
+            }
+
+            boolean forceNew = "true".equals(req.getParameter("forceNew"));
+
+            ErrorExplanationAction existingAction = run.getAction(ErrorExplanationAction.class);
+            if (!forceNew && existingAction != null && existingAction.hasValidExplanation()) {
+                writeJsonResponse(rsp, "success", existingAction.getProviderName(), createCachedResponse(existingAction.getExplanation()));
+                return;
+            }
+
+            ExplanationJobs.Job job;
+            try {
+                job = submitJob(forceNew, getMaxLines(req));
+            } catch (RejectedExecutionException e) {
+                writeJsonResponse(rsp, "error", "Unkown", "Too many explanations are in progress. Please try again later.");
+                return;
+            }
+            writeJobResponse(rsp, job);
+        } catch (Exception e) {
+            LOGGER.severe("Error starting explanation: " + e.getMessage());
+            writeJsonResponse(rsp, "error", "Unkown" , "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * AJAX endpoint to get the state of a background explanation.
+     * With the {@code wait} parameter the response is delayed for up to that many seconds until the job finishes,
+     * see {@link #respondWhen}.
+     * Returns JSON with the state, one of {@code queued}, {@code running}, {@code done} and {@code failed}, and the
+     * result once the job has finished.
+     */
+    @RequirePOST
+    public void doExplanationStatus(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        try {
+            run.checkPermission(hudson.model.Item.READ);
+
+            ExplanationJobs.Job job = ExplanationJobs.get().getJob(req.getParameter("jobId"), run.getExternalizableId());
+            if (job == null) {
+                writeJsonResponse(rsp, "error", "Unkown", "The explanation is not known or has expired.");
+                return;
+            }
+            respondWhen(req, job.getCompletion(), getWaitMillis(req), () -> writeJobResponse(rsp, job));
+        } catch (Exception e) {
+            LOGGER.severe("Error checking explanation status: " + e.getMessage());
+            writeJsonResponse(rsp, "error", "Unkown" , "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * AJAX endpoint streaming the explanation as Server-Sent Events.
+     * The explanation runs in the background like for {@link #doStartExplanation}, announced by a {@code job} event
+     * with its id, and this request only relays the parts of the explanation as {@code token} events while they
+     * arrive. It finishes with a {@code done} event carrying the complete explanation or an {@code error} event. When
+     * the explanation takes longer than {@link #MAX_WAIT_SECONDS}, it finishes with a {@code pending} event instead
+     * and the result is fetched with {@link #doExplanationStatus}.
+     */
+    @RequirePOST
+    public void doStreamExplanation(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        run.checkPermission(hudson.model.Item.READ);
+
+        rsp.setContentType("text/event-stream");
+        rsp.setCharacterEncoding("UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        rsp.setHeader("X-Accel-Buffering", "no");
+        PrintWriter writer = rsp.getWriter();
+        try {
+            GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+            if (!config.isEnableExplanation()) {
+                writeEvent(writer, "error", createJsonResponse("warning", "Unkown", "AI error explanation is disabled in global configuration."));
+                return;
+            }
+
+            boolean forceNew = "true".equals(req.getParameter("forceNew"));
+
+            ErrorExplanationAction existingAction = run.getAction(ErrorExplanationAction.class);
+            if (!forceNew && existingAction != null && existingAction.hasValidExplanation()) {
+                writeEvent(writer, "done", createJsonResponse("success", existingAction.getProviderName(), createCachedResponse(existingAction.getExplanation())));
+                return;
+            }
+
+            ExplanationJobs.Job job;
+            try {
+                job = submitJob(forceNew, getMaxLines(req));
+            } catch (RejectedExecutionException e) {
+                writeEvent(writer, "error", createJsonResponse("error", "Unkown", "Too many explanations are in progress. Please try again later."));
+                return;
+            }
+            writeEvent(writer, "job", createJobJson(job));
+            relayTokens(writer, job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.severe("Error streaming explanation: " + e.getMessage());
+            writeEvent(writer, "error", createJsonResponse("error", "Unkown", "Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Write the parts of the explanation of a job as they arrive, until the job finishes or the wait time is over.
+     */
+    private static void relayTokens(PrintWriter writer, ExplanationJobs.Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(MAX_WAIT_SECONDS);
+        int seen = 0;
+        while (true) {
+            boolean finished = job.isFinished();
+            long remaining = deadline - System.currentTimeMillis();
+            for (String token : job.awaitTokens(seen, finished ? 0 : remaining)) {
+                JSONObject json = new JSONObject();
+                json.put("text", token);
+                writeEvent(writer, "token", json);
+                seen++;
+            }
+            if (finished) {
+                writeEvent(writer, job.getState() == ExplanationJobs.State.DONE ? "done" : "error",
+                        createJsonResponse(job.getStatus(), job.getProviderName(), job.getMessage()));
+                return;
+            }
+            if (remaining <= 0) {
+                writeEvent(writer, "pending", createJobJson(job));
+                return;
+            }
+        }
+    }
+
+    private static void writeEvent(PrintWriter writer, String event, JSONObject data) {
+        writer.write("event: " + event + "\ndata: " + data + "\n\n");
+        writer.flush();
+    }
+
+    /**
+     * Read the last lines of the console output, which are explained as a whole, or only the logs of the failed
+     * steps of a Pipeline when configured, see {@link FailedStepsLogReader}.
+     */
+    static String readErrorText(Run<?, ?> run, int maxLines) throws IOException {
+        long start = System.nanoTime();
+        String errorText = null;
+        if (GlobalConfigurationImpl.get().isFailedStepsOnly()) {
+            errorText = FailedStepsLogReader.read(run, maxLines);
+        }
+        if (errorText == null) {
+            errorText = LogTailReader.readTail(run, maxLines);
+        }
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        metrics.time(ExplanationMetrics.LOG_READ, start);
+        metrics.time(ExplanationMetrics.EXTRACTION, start);
+        return errorText;
+    }
+
+    /**
+     * Queue the explanation of the run, or get the one already in progress.
+     * @throws RejectedExecutionException if too many explanations are queued
+     */
+    private ExplanationJobs.Job submitJob(boolean forceNew, int maxLines) {
+        ExplanationJobs jobs = ExplanationJobs.get();
+        ExplanationJobs.Job job = jobs.getActiveJob(run.getExternalizableId());
+        if (job != null) {
+            return job;
+        }
+        return jobs.submit(run.getExternalizableId(), j -> explainInBackground(j, forceNew, maxLines));
+    }
+
+    private void explainInBackground(ExplanationJobs.Job job, boolean forceNew, int maxLines) {
+        ErrorExplainer explainer = new ErrorExplainer();
+        try {
+            String errorText = readErrorText(run, maxLines);
+            ErrorExplanationAction action = explainer.explainErrorText(errorText, run, forceNew, job::addToken);
+            job.complete("success", action.getProviderName(), action.getExplanation());
+        } catch (ExplanationException ee) {
+            job.complete(ee.getLevel(), explainer.getProviderName(), ee.getMessage());
+        } catch (IOException e) {
+            LOGGER.severe("Error explaining console error: " + e.getMessage());
+            job.complete("error", "Unkown", "Error: " + e.getMessage());
+        }
+    }
+
+    private void writeJobResponse(StaplerResponse2 rsp, ExplanationJobs.Job job) throws IOException {
+        rsp.setContentType("application/json");
+        rsp.setCharacterEncoding("UTF-8");
+        PrintWriter writer = rsp.getWriter();
+        writer.write(createJobJson(job).toString());
+        writer.flush();
+    }
+
+    private static JSONObject createJobJson(ExplanationJobs.Job job) {
+        JSONObject json = new JSONObject();
+        json.put("jobId", job.getId());
+        json.put("state", job.getState().name().toLowerCase(Locale.ROOT));
+        if (job.isFinished()) {
+            json.put("status", job.getStatus());
+            json.put("providerName", job.getProviderName());
+            json.put("message", job.getMessage());
+        } else {
+            json.put("status", "pending");
+        }
+        return json;
+    }
+
+    private static int getMaxLines(StaplerRequest2 req) {
+        // Optionally allow maxLines as a parameter, default to 200
+        return parseInt(req.getParameter("maxLines"), DEFAULT_MAX_LINES);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value != null) {
+            try { return Integer.parseInt(value); } catch (NumberFormatException ignore) {}
+        }
+        return defaultValue;
+    }
+
     /**
      * AJAX endpoint to check if an explanation already exists.
      * Returns JSON with hasExplanation boolean and timestamp if it exists.
@@ -126,6 +361,105 @@ public class ConsoleExplainErrorAction implements Action {
         }
     }
 
+    /**
+     * AJAX endpoint combining {@link #doCheckBuildStatus} and {@link #doCheckExistingExplanation}.
+     * With the {@code wait} parameter the response for a running build is delayed for up to that many seconds until
+     * the build completes, see {@link #respondWhen}, so the console page does not need to poll.
+     * Returns JSON with buildingStatus, hasExplanation and the timestamp of an existing explanation.
+     */
+    @GET
+    public void doStatus(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        try {
+            run.checkPermission(hudson.model.Item.READ);
+
+            respondWhen(req, RunCompletionWaiter.get().getCompletion(run), getWaitMillis(req), () -> {
+                JSONObject json = new JSONObject();
+                json.put("buildingStatus", getBuildingStatus());
+                ErrorExplanationAction existingAction = run.getAction(ErrorExplanationAction.class);
+                boolean hasExplanation = existingAction != null && existingAction.hasValidExplanation();
+                json.put("hasExplanation", hasExplanation);
+                if (hasExplanation) {
+                    json.put("timestamp", existingAction.getFormattedTimestamp());
+                }
+
+                rsp.setContentType("application/json");
+                rsp.setCharacterEncoding("UTF-8");
+                PrintWriter writer = rsp.getWriter();
+                writer.write(json.toString());
+                writer.flush();
+            });
+        } catch (Exception e) {
+            LOGGER.severe("Error checking status: " + e.getMessage());
+            rsp.setStatus(500);
+        }
+    }
+
+    /**
+     * Write the response once the given event happened or the timeout expired. While waiting, the request thread is
+     * released if the container supports asynchronous requests, so open console pages do not hold on to request
+     * threads. Otherwise the current state is written right away and the page asks again later.
+     * @param event completed when the response should be written
+     * @param timeoutMillis maximum time to wait for the event
+     * @param response writes the response
+     */
+    private static void respondWhen(StaplerRequest2 req, CompletableFuture<?> event, long timeoutMillis,
+                                    Response response) throws IOException {
+        if (timeoutMillis <= 0 || event.isDone() || !req.isAsyncSupported()) {
+            response.write();
+            return;
+        }
+        AsyncContext context = req.startAsync();
+        // the container must not time out before the response has been written
+        context.setTimeout(timeoutMillis + TimeUnit.SECONDS.toMillis(10));
+        CompletableFuture<Void> timeout = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> timeout.complete(null));
+        CompletableFuture.anyOf(event, timeout).whenCompleteAsync((result, error) -> {
+            try {
+                response.write();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.fine("Failed to write a delayed response: " + e.getMessage());
+            } finally {
+                context.complete();
+            }
+        }, Timer.get());
+    }
+
+    /**
+     * Writes a response, possibly after the request thread was released.
+     */
+    @FunctionalInterface
+    private interface Response {
+        void write() throws IOException;
+    }
+
+    private static long getWaitMillis(StaplerRequest2 req) {
+        return TimeUnit.SECONDS.toMillis(Math.min(parseInt(req.getParameter("wait"), 0), MAX_WAIT_SECONDS));
+    }
+
+    /**
+     * AJAX endpoint sent by the console page of a failed build before the user asks for an explanation, so that the
+     * providers can prepare the model in the meantime, see
+     * {@link io.jenkins.plugins.explain_error.provider.BaseAIProvider#warmUp()}.
+     */
+    @RequirePOST
+    public void doWarmUp(StaplerRequest2 req, StaplerResponse2 rsp) {
+        run.checkPermission(hudson.model.Item.READ);
+        if (!run.isBuilding() && run.getResult() != Result.SUCCESS) {
+            GlobalConfigurationImpl.get().warmUpProviders();
+        }
+        rsp.setStatus(204);
+    }
+
+    /**
+     * Get the status of the run: 0 - SUCCESS, 1 - RUNNING, 2 - FINISHED and FAILURE.
+     */
+    private int getBuildingStatus() {
+        if (run.isBuilding()) {
+            return 1;
+        }
+        return run.getResult() == Result.SUCCESS ? 0 : 2;
+    }
+
     /**
      * AJAX endpoint to check build status.
      * Returns JSON with buildingStatus to determine if button should be shown. 0 - SUCCESS, 1 - RUNNING, 2 - FINISHED and FAILURE
@@ -135,17 +469,8 @@ public class ConsoleExplainErrorAction implements Action {
         try {
             run.checkPermission(hudson.model.Item.READ);
             
-            Integer buildingStatus = run.isBuilding() ? 1 : 0;
-
-            if (buildingStatus == 0) {
-                Result result = run.getResult();
-                if (result == Result.SUCCESS) {
-                    buildingStatus = 0;
-                } else {
-                    buildingStatus = 2;
-                }
-            }
-            
+            int buildingStatus = getBuildingStatus();
+
             rsp.setContentType("application/json");
             rsp.setCharacterEncoding("UTF-8");
             PrintWriter writer = rsp.getWriter();
@@ -163,13 +488,16 @@ public class ConsoleExplainErrorAction implements Action {
         rsp.setContentType("application/json");
         rsp.setCharacterEncoding("UTF-8");
         PrintWriter writer = rsp.getWriter();
+        writer.write(createJsonResponse(status, providerName, message).toString());
+        writer.flush();
+    }
 
+    private static JSONObject createJsonResponse(String status, String providerName, String message) {
         JSONObject json = new JSONObject();
         json.put("status", status);
         json.put("providerName", providerName);
         json.put("message", message);
-        writer.write(json.toString());
-        writer.flush();
+        return json;
     }
 
     /**
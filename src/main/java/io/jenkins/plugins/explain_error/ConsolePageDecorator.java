@@ -1,38 +1,48 @@
 package io.jenkins.plugins.explain_error;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.Extension;
 import hudson.model.PageDecorator;
+import java.util.regex.Pattern;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
 
 /**
  * Page decorator to add "Explain Error" functionality to console output pages.
+ * The footer is evaluated for every page, so other pages are recognized by their URL before the configuration is
+ * looked at, and they get neither the script nor the markup.
  */
 @Extension
 public class ConsolePageDecorator extends PageDecorator {
 
+    /**
+     * URLs of console output pages, the same as checked by {@code explain-error-footer.js}.
+     */
+    private static final Pattern CONSOLE_PAGE = Pattern.compile(".*/console(Full)?$");
+
     public ConsolePageDecorator() {
         super();
     }
 
     public boolean isExplainErrorEnabled() {
-        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
-
         // Must have explanation enabled. API key required for providers other than OLLAMA.
-        if (!config.isEnableExplanation()) {
-            return false;
-        }
-
-        return !config.getAiProvider().isNotValid(null);
+        return GlobalConfigurationImpl.get().isExplanationAvailable();
     }
 
     public String getProviderName() {
         return GlobalConfigurationImpl.get().getAiProvider().getProviderName();
     }
+
     /**
-     * Helper method for JavaScript to check if a build is completed.
-     * Returns true if the plugin is enabled (for JavaScript inclusion),
-     * actual build status check is done in JavaScript.
+     * Whether the script and markup are added to the current page, i.e. it is a console output page and errors can be
+     * explained. The actual build status check is done in JavaScript.
      */
     public boolean isPluginActive() {
-        return isExplainErrorEnabled();
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        return isConsolePage(req != null ? req.getRequestURI() : null) && isExplainErrorEnabled();
+    }
+
+    static boolean isConsolePage(@CheckForNull String path) {
+        return path != null && !path.contains("/error-explanation") && CONSOLE_PAGE.matcher(path).matches();
     }
 }
@@ -1,12 +1,18 @@
 package io.jenkins.plugins.explain_error;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.util.LogTaskListener;
 import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -20,11 +26,37 @@ public class ErrorExplainer {
     private String providerName;
     private static final Logger LOGGER = Logger.getLogger(ErrorExplainer.class.getName());
 
+    /**
+     * Explanations of runs currently in progress, keyed by the externalizable id of the run.
+     */
+    private static final SingleFlight<ErrorExplanationAction> RUN_EXPLANATIONS = new SingleFlight<>();
+
+    /**
+     * Provider requests currently in progress, keyed by {@link FailureFingerprint}. Like the explanation cache, they
+     * are only shared when the cache is enabled.
+     */
+    private static final SingleFlight<ProviderFailover.Answer> PROVIDER_CALLS = new SingleFlight<>();
+
+    /**
+     * Number of requests to the primary provider needed before its latency is used for the hedge delay.
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
     public String getProviderName() {
         return providerName;
     }
 
     public void explainError(Run<?, ?> run, TaskListener listener, String logPattern, int maxLines) {
+        explainError(run, listener, logPattern, maxLines, false);
+    }
+
+    /**
+     * Explain the error of a run.
+     * @param failedStepsOnly whether to read only the logs of the failed steps of a Pipeline, see
+     *        {@link FailedStepsLogReader}
+     */
+    public void explainError(Run<?, ?> run, TaskListener listener, String logPattern, int maxLines,
+                             boolean failedStepsOnly) {
         String jobInfo = run != null ? ("[" + run.getParent().getFullName() + " #" + run.getNumber() + "]") : "[unknown]";
         try {
             GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
@@ -37,16 +69,20 @@ public class ErrorExplainer {
             BaseAIProvider provider = config.getAiProvider();
 
             // Extract error logs
-            String errorLogs = extractErrorLogs(run, logPattern, maxLines);
+            String errorLogs = extractErrorLogs(run, logPattern, maxLines, failedStepsOnly);
 
             // Get AI explanation
             try {
-                String explanation = provider.explainError(errorLogs, listener);
+                long start = System.nanoTime();
+                ProviderFailover.Answer answer = explain(provider, errorLogs, listener, false, null, run);
                 LOGGER.fine(jobInfo + " AI error explanation succeeded.");
 
                 // Store explanation in build action
-                ErrorExplanationAction action = new ErrorExplanationAction(explanation, errorLogs, provider.getProviderName());
+                ErrorExplanationAction action = new ErrorExplanationAction(answer.explanation, errorLogs, answer.providerName);
+                action.setReusedFrom(answer.reusedFrom);
                 run.addOrReplaceAction(action);
+                index(run, errorLogs, answer);
+                ExplanationStore.get().record(run, action, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             } catch (ExplanationException ee) {
                 listener.getLogger().println(ee.getMessage());
             }
@@ -59,45 +95,415 @@ public class ErrorExplainer {
         }
     }
 
-    private String extractErrorLogs(Run<?, ?> run, String logPattern, int maxLines) throws IOException {
-        List<String> logLines = run.getLog(maxLines);
-
+    private String extractErrorLogs(Run<?, ?> run, String logPattern, int maxLines, boolean failedStepsOnly)
+            throws IOException {
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        long start = System.nanoTime();
+        if (failedStepsOnly) {
+            String failedStepLogs = FailedStepsLogReader.read(run, maxLines);
+            if (failedStepLogs != null) {
+                metrics.time(ExplanationMetrics.LOG_READ, start);
+                if (StringUtils.isNotBlank(failedStepLogs) && StringUtils.isNotBlank(logPattern)) {
+                    failedStepLogs = filter(failedStepLogs, Pattern.compile(logPattern, Pattern.CASE_INSENSITIVE));
+                }
+                metrics.time(ExplanationMetrics.EXTRACTION, start);
+                return failedStepLogs;
+            }
+            // not a Pipeline or no failed step, read the whole log
+        }
         if (StringUtils.isBlank(logPattern)) {
             // Return last few lines if no pattern specified
-            return String.join("\n", logLines);
+            String errorLogs = LogTailReader.readTail(run, maxLines);
+            metrics.time(ExplanationMetrics.LOG_READ, start);
+            metrics.time(ExplanationMetrics.EXTRACTION, start);
+            return errorLogs;
         }
 
         Pattern pattern = Pattern.compile(logPattern, Pattern.CASE_INSENSITIVE);
         StringBuilder errorLogs = new StringBuilder();
+        long[] filterNanos = new long[1];
 
-        for (String line : logLines) {
+        LogTailReader.forEachTailLine(run, maxLines, line -> {
+            long filterStart = System.nanoTime();
             if (pattern.matcher(line).find()) {
                 errorLogs.append(line).append("\n");
             }
-        }
+            filterNanos[0] += System.nanoTime() - filterStart;
+        });
 
+        // lines are filtered while they are read
+        metrics.time(ExplanationMetrics.LOG_READ, start + filterNanos[0]);
+        metrics.time(ExplanationMetrics.EXTRACTION, start);
         return errorLogs.toString();
     }
 
+    private static String filter(String logs, Pattern pattern) {
+        StringBuilder errorLogs = new StringBuilder();
+        for (String line : logs.split("\n")) {
+            if (pattern.matcher(line).find()) {
+                errorLogs.append(line).append("\n");
+            }
+        }
+        return errorLogs.toString();
+    }
+
+    /**
+     * Explain the error logs with the given provider, serving failures that repeat those of the previous build, and
+     * identical or similar failures from the explanation cache or the similarity index when they are enabled.
+     * @param forceNew whether to bypass a cached explanation
+     * @param tokenConsumer receives the explanation as it arrives, may be {@code null}
+     * @param run the run that is explained
+     */
+    private ProviderFailover.Answer explain(BaseAIProvider provider, String errorLogs, TaskListener listener,
+                                            boolean forceNew, @CheckForNull Consumer<String> tokenConsumer,
+                                            Run<?, ?> run) throws ExplanationException {
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        long start = System.nanoTime();
+        try {
+            ProviderFailover.Answer answer = explainWithCache(provider, errorLogs, listener, forceNew, tokenConsumer, run);
+            metrics.time(ExplanationMetrics.EXPLANATION_LATENCY, start);
+            return answer;
+        } catch (ExplanationException e) {
+            metrics.increment(ExplanationMetrics.ERRORS + e.getLevel());
+            throw e;
+        }
+    }
+
+    private ProviderFailover.Answer explainWithCache(BaseAIProvider provider, String errorLogs, TaskListener listener,
+                                                     boolean forceNew, @CheckForNull Consumer<String> tokenConsumer,
+                                                     Run<?, ?> run) throws ExplanationException {
+        if (StringUtils.isBlank(errorLogs)) {
+            // fails fast without taking a slot
+            return new ProviderFailover.Answer(provider.explainError(errorLogs, listener, tokenConsumer),
+                    provider.getProviderName());
+        }
+
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        String originalErrorLogs = errorLogs;
+        if (config.isEnableLogCompaction()) {
+            errorLogs = compact(errorLogs, listener);
+        }
+        if (config.isEnableStreakReuse() && !forceNew) {
+            ProviderFailover.Answer previous = findPreviousFailure(originalErrorLogs, run, listener, tokenConsumer);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        String fingerprint = FailureFingerprint.compute(provider.getProviderName(), provider.getModel(), errorLogs);
+
+        ExplanationCache cache = config.isEnableCache() ? config.getExplanationCache() : null;
+        if (cache != null && !forceNew) {
+            String cached = cache.get(fingerprint);
+            ExplanationMetrics.get().increment(cached != null ? ExplanationMetrics.CACHE_HITS : ExplanationMetrics.CACHE_MISSES);
+            if (cached != null) {
+                listener.getLogger().println("Reusing the cached explanation of an identical failure.");
+                if (tokenConsumer != null) {
+                    tokenConsumer.accept(cached);
+                }
+                return new ProviderFailover.Answer(cached, provider.getProviderName());
+            }
+        }
+        if (config.isEnableSimilarityReuse() && !forceNew) {
+            ProviderFailover.Answer similar = findSimilar(originalErrorLogs, run, listener, tokenConsumer);
+            if (similar != null) {
+                return similar;
+            }
+        }
+        ProviderFailover.Answer answer = callProvider(provider, cache != null ? fingerprint : null, errorLogs, listener,
+                tokenConsumer);
+        if (cache != null) {
+            cache.put(fingerprint, answer.explanation);
+        }
+        return answer;
+    }
+
+    /**
+     * Answer with the explanation of the previous completed build of the same job if it failed the same way, so a
+     * failure that repeats in every build of a streak is only explained once.
+     * @return the answer, or {@code null} if the previous build has no explanation or failed differently
+     */
+    @CheckForNull
+    private static ProviderFailover.Answer findPreviousFailure(String errorLogs, Run<?, ?> run, TaskListener listener,
+                                                               @CheckForNull Consumer<String> tokenConsumer) {
+        Run<?, ?> previous = run.getPreviousCompletedBuild();
+        if (previous == null || previous.getResult() == Result.SUCCESS) {
+            return null;
+        }
+        ErrorExplanationAction action = previous.getAction(ErrorExplanationAction.class);
+        if (action == null || !action.hasValidExplanation()) {
+            return null;
+        }
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        if (!FailureFingerprint.normalize(action.getOriginalErrorLogs()).equals(FailureFingerprint.normalize(errorLogs))) {
+            metrics.increment(ExplanationMetrics.STREAK_MISSES);
+            listener.getLogger().println("The failure differs from the one explained in "
+                    + previous.getFullDisplayName() + ".");
+            return null;
+        }
+        metrics.increment(ExplanationMetrics.STREAK_HITS);
+        String explanation = action.getExplanation();
+        listener.getLogger().println("Reusing the explanation of the same failure in the previous build "
+                + previous.getFullDisplayName() + ".");
+        if (tokenConsumer != null) {
+            tokenConsumer.accept(explanation);
+        }
+        return new ProviderFailover.Answer(explanation, action.getProviderName(), previous.getExternalizableId());
+    }
+
+    /**
+     * Answer with the explanation of the most similar past failure, see {@link SimilarityIndex}.
+     * @return the answer, or {@code null} if no past failure is similar enough
+     */
+    @CheckForNull
+    private static ProviderFailover.Answer findSimilar(String errorLogs, Run<?, ?> run, TaskListener listener,
+                                                       @CheckForNull Consumer<String> tokenConsumer) {
+        double threshold = GlobalConfigurationImpl.get().getSimilarityThreshold() / 100.0;
+        SimilarityIndex.Match match = SimilarityIndex.get().findSimilar(errorLogs, threshold, run);
+        ExplanationMetrics.get().increment(match != null
+                ? ExplanationMetrics.SIMILARITY_HITS : ExplanationMetrics.SIMILARITY_MISSES);
+        if (match == null) {
+            return null;
+        }
+        ErrorExplanationAction action = match.getAction();
+        String explanation = action.getExplanation();
+        listener.getLogger().println("Reusing the explanation of a similar failure in "
+                + action.getRun().getFullDisplayName() + " (" + Math.round(match.getSimilarity() * 100) + "% similar).");
+        if (tokenConsumer != null) {
+            tokenConsumer.accept(explanation);
+        }
+        return new ProviderFailover.Answer(explanation, action.getProviderName(), match.getRunId());
+    }
+
+    /**
+     * Add a new explanation to the {@link SimilarityIndex}, unless it was reused from a similar failure.
+     */
+    private static void index(Run<?, ?> run, String errorLogs, ProviderFailover.Answer answer) {
+        if (answer.reusedFrom == null && StringUtils.isNotBlank(errorLogs)
+                && GlobalConfigurationImpl.get().isEnableSimilarityReuse()) {
+            SimilarityIndex.get().add(run.getExternalizableId(), errorLogs);
+        }
+    }
+
+    /**
+     * Compact the error logs for the prompt, see {@link LogCompactor}, and report the savings.
+     */
+    private static String compact(String errorLogs, TaskListener listener) {
+        String compacted = LogCompactor.compact(errorLogs);
+        int saved = errorLogs.length() - compacted.length();
+        if (saved > 0) {
+            listener.getLogger().println("Compacted error logs from " + errorLogs.length() + " to "
+                    + compacted.length() + " characters (about " + saved / 4 + " tokens less).");
+        }
+        return compacted;
+    }
+
+    /**
+     * Call the configured providers, see {@link ProviderFailover}.
+     * Concurrent calls for the same fingerprint share a single provider request.
+     * @param fingerprint the fingerprint of the failure, or {@code null} to not share the request
+     */
+    private ProviderFailover.Answer callProvider(BaseAIProvider provider, @CheckForNull String fingerprint, String errorLogs,
+                                                 TaskListener listener, @CheckForNull Consumer<String> tokenConsumer)
+            throws ExplanationException {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        List<BaseAIProvider> providers = new ArrayList<>();
+        providers.add(provider);
+        for (BaseAIProvider fallback : config.getFallbackProviders()) {
+            if (fallback != provider) {
+                providers.add(fallback);
+            }
+        }
+        long hedgeDelayMillis = config.isEnableHedging() ? getHedgeDelayMillis(provider, config) : 0;
+
+        AtomicBoolean called = new AtomicBoolean();
+        SingleFlight.Work<ProviderFailover.Answer> work = () -> {
+            called.set(true);
+            ExplanationMetrics metrics = ExplanationMetrics.get();
+            metrics.update(ExplanationMetrics.ERROR_LOG_CHARS, errorLogs.length());
+            metrics.update(ExplanationMetrics.ERROR_LOG_TOKENS, errorLogs.length() / 4);
+            return ProviderFailover.explain(providers, hedgeDelayMillis, listener, tokenConsumer,
+                    (p, consumer) -> explainWithProvider(p, errorLogs, listener, consumer));
+        };
+        ProviderFailover.Answer answer;
+        try {
+            answer = fingerprint != null ? PROVIDER_CALLS.run(fingerprint, work) : work.call();
+        } catch (IOException e) {
+            throw new ExplanationException("error", "Explanation failed: " + e.getMessage(), e);
+        }
+        if (!called.get()) {
+            listener.getLogger().println("Reusing the explanation of an identical failure that was in progress.");
+            if (tokenConsumer != null) {
+                tokenConsumer.accept(answer.explanation);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Explain the error logs with a single provider. Logs too large for the context of the model are summarized in
+     * parts first when enabled, see {@link ChunkedExplainer}.
+     */
+    private static String explainWithProvider(BaseAIProvider provider, String errorLogs, TaskListener listener,
+                                              @CheckForNull Consumer<String> tokenConsumer) throws ExplanationException {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        if (config.isEnableChunkedSummarization()) {
+            List<String> chunks = ChunkedExplainer.split(errorLogs, ChunkedExplainer.getChunkChars(provider));
+            if (chunks.size() > 1) {
+                listener.getLogger().println("The error logs are too large for a single request to "
+                        + provider.getProviderName() + ".");
+                String summaries = ChunkedExplainer.summarize(chunks, config.getMaxConcurrentExplanations(), listener,
+                        (chunk, part, parts) -> callProvider(provider, chunk.length() / 4, listener, null,
+                                (p, consumer) -> p.summarizeErrorLogs(chunk, part, parts, listener)));
+                return callProvider(provider, summaries.length() / 4, listener, tokenConsumer,
+                        (p, consumer) -> p.explainSummaries(summaries, listener, consumer));
+            }
+        }
+        return callProvider(provider, errorLogs.length() / 4, listener, tokenConsumer,
+                (p, consumer) -> p.explainError(errorLogs, listener, consumer));
+    }
+
+    /**
+     * Call a single provider within its rate limit, see {@link RateLimiters}. When the provider answers that its rate
+     * limit was reached, the request is repeated after the time it asks for, as long as that is within the maximum
+     * wait.
+     * @param estimatedTokens estimated tokens of the request
+     * @param request the request to the provider
+     */
+    private static String callProvider(BaseAIProvider provider, int estimatedTokens, TaskListener listener,
+                                       @CheckForNull Consumer<String> tokenConsumer,
+                                       ProviderFailover.Call request) throws ExplanationException {
+        RateLimiters.RateLimiter rateLimiter = RateLimiters.get().forProvider(provider);
+        long deadline = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(GlobalConfigurationImpl.get().getQueueTimeoutSeconds());
+        AtomicBoolean streamed = new AtomicBoolean();
+        Consumer<String> consumer = tokenConsumer == null ? null : token -> {
+            streamed.set(true);
+            tokenConsumer.accept(token);
+        };
+        while (true) {
+            rateLimiter.acquire(estimatedTokens, deadline, listener);
+            try {
+                return callProviderOnce(provider, listener, consumer, request);
+            } catch (ExplanationException e) {
+                long retryAfter = RateLimiters.getRetryAfterMillis(e);
+                if (retryAfter < 0 || streamed.get()) {
+                    throw e;
+                }
+                rateLimiter.backOff(retryAfter);
+                listener.getLogger().println("The rate limit of " + provider.getProviderName() + " was reached.");
+            }
+        }
+    }
+
+    /**
+     * Call a single provider once a slot is free, see {@link ExplanationScheduler}, unless its circuit breaker is
+     * open, see {@link CircuitBreakers}. A provider that is not properly configured fails without counting against
+     * its circuit breaker.
+     */
+    private static String callProviderOnce(BaseAIProvider provider, TaskListener listener,
+                                           @CheckForNull Consumer<String> tokenConsumer,
+                                           ProviderFailover.Call request) throws ExplanationException {
+        provider.checkConfigured(listener);
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        CircuitBreakers.CircuitBreaker breaker = CircuitBreakers.get().forProvider(provider);
+        try (ExplanationScheduler.Permit permit = ExplanationScheduler.get().acquire(provider, listener)) {
+            metrics.timeMillis(ExplanationMetrics.QUEUE_WAIT, permit.getWaitMillis());
+            // only asked once the slot is free, so that the trial calls of a half-open breaker are not used up by
+            // requests waiting in the queue
+            breaker.acquirePermission();
+            long start = System.nanoTime();
+            boolean success = false;
+            boolean rateLimited = false;
+            try {
+                String explanation = request.explain(provider, tokenConsumer);
+                success = true;
+                return explanation;
+            } catch (ExplanationException e) {
+                rateLimited = RateLimiters.getRetryAfterMillis(e) >= 0;
+                throw e;
+            } finally {
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                // failed requests count as well, a provider that times out is a slow provider
+                metrics.timeMillis(ExplanationMetrics.providerLatency(provider), millis);
+                // neither a cancelled request, e.g. the slower of two hedged requests, nor a rate limited one says
+                // anything about the health of the provider
+                if (!rateLimited && !Thread.currentThread().isInterrupted()) {
+                    breaker.record(success, millis);
+                } else {
+                    breaker.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the delay after which a fallback provider is asked as well: the 95th percentile of the latency of the
+     * primary provider, or the configured delay while there are too few requests to derive it from.
+     */
+    static long getHedgeDelayMillis(BaseAIProvider provider, GlobalConfigurationImpl config) {
+        ExplanationMetrics.Histogram latency = ExplanationMetrics.get().getHistogram(ExplanationMetrics.providerLatency(provider));
+        if (latency != null && latency.getCount() >= MIN_HEDGE_SAMPLES) {
+            return Math.max(latency.get95thPercentile(), 1);
+        }
+        return TimeUnit.SECONDS.toMillis(config.getHedgeDelaySeconds());
+    }
+
     /**
      * Explains error text directly without extracting from logs.
      * Used for console output error explanation.
      */
     public ErrorExplanationAction explainErrorText(String errorText, @NonNull  Run<?, ?> run) throws IOException, ExplanationException {
+        return explainErrorText(errorText, run, false);
+    }
+
+    /**
+     * Explains error text directly without extracting from logs.
+     * Used for console output error explanation.
+     * @param forceNew whether to ask the provider even if the explanation cache holds an identical failure
+     */
+    public ErrorExplanationAction explainErrorText(String errorText, @NonNull  Run<?, ?> run, boolean forceNew) throws IOException, ExplanationException {
+        return explainErrorText(errorText, run, forceNew, null);
+    }
+
+    /**
+     * Explains error text directly without extracting from logs, passing the explanation to the given consumer as
+     * it arrives from the provider. The complete explanation is stored in the run once it has arrived.
+     * @param forceNew whether to ask the provider even if the explanation cache holds an identical failure
+     * @param tokenConsumer receives the parts of the explanation as they arrive, may be {@code null}
+     */
+    public ErrorExplanationAction explainErrorText(String errorText, @NonNull  Run<?, ?> run, boolean forceNew,
+                                                   @CheckForNull Consumer<String> tokenConsumer) throws IOException, ExplanationException {
         String jobInfo ="[" + run.getParent().getFullName() + " #" + run.getNumber() + "]";
 
-        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        // Concurrent requests for the same run share one explanation, which is saved once
+        AtomicBoolean called = new AtomicBoolean();
+        ErrorExplanationAction action = RUN_EXPLANATIONS.run(run.getExternalizableId(), () -> {
+            called.set(true);
+            GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
 
-        BaseAIProvider provider = config.getAiProvider();
+            BaseAIProvider provider = config.getAiProvider();
 
-        // Get AI explanation
-        String explanation = provider.explainError(errorText, new LogTaskListener(LOGGER, Level.FINE));
-        LOGGER.fine(jobInfo + " AI error explanation succeeded.");
-        LOGGER.finer("Explanation length: " + (explanation != null ? explanation.length() : 0));
-        this.providerName = provider.getProviderName();
-        ErrorExplanationAction action = new ErrorExplanationAction(explanation, errorText, provider.getProviderName());
-        run.addOrReplaceAction(action);
-        run.save();
+            // Get AI explanation
+            long start = System.nanoTime();
+            ProviderFailover.Answer answer = explain(provider, errorText, new LogTaskListener(LOGGER, Level.FINE),
+                    forceNew, tokenConsumer, run);
+            LOGGER.fine(jobInfo + " AI error explanation succeeded.");
+            LOGGER.finer("Explanation length: " + (answer.explanation != null ? answer.explanation.length() : 0));
+            ErrorExplanationAction result = new ErrorExplanationAction(answer.explanation, errorText, answer.providerName);
+            result.setReusedFrom(answer.reusedFrom);
+            run.addOrReplaceAction(result);
+            run.save();
+            index(run, errorText, answer);
+            ExplanationStore.get().record(run, result, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        });
+        if (!called.get()) {
+            LOGGER.fine(jobInfo + " Shared the explanation of a concurrent request.");
+            if (tokenConsumer != null) {
+                tokenConsumer.accept(action.getExplanation());
+            }
+        }
+        this.providerName = action.getProviderName();
 
         return action;
     }
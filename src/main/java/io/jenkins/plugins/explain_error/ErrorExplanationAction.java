@@ -1,17 +1,57 @@
 package io.jenkins.plugins.explain_error;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import hudson.model.Run;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import jenkins.model.RunAction2;
+import jenkins.util.Timer;
 
 /**
  * Build action to store and display error explanations.
+ * The explanation and the original error logs are kept in a compressed file next to the build.xml, so they are only
+ * loaded when they are actually needed and do not stay in memory with every loaded build.
  */
 public class ErrorExplanationAction implements RunAction2 {
 
-    private final String explanation;
-    private final String originalErrorLogs;
+    private static final Logger LOGGER = Logger.getLogger(ErrorExplanationAction.class.getName());
+
+    /**
+     * Name of the file in the build directory holding explanation and error logs.
+     */
+    static final String PAYLOAD_FILE = "error-explanation.gz";
+
+    /**
+     * Only set until the payload has been written to {@link #PAYLOAD_FILE}, or for actions stored in build.xml by
+     * earlier versions.
+     */
+    private String explanation;
+    private String originalErrorLogs;
     private final long timestamp;
     private String providerName = "Unknown";
+    private boolean validExplanation;
+    /**
+     * Externalizable id of the run whose explanation of a similar failure was reused, see {@link SimilarityIndex}.
+     */
+    private String reusedFrom;
+    private transient volatile SoftReference<Payload> payload;
+    /**
+     * Whether the payload of a new action still has to be written.
+     */
+    private transient boolean unwritten;
     private transient Run<?, ?> run;
 
     public ErrorExplanationAction(String explanation, String originalErrorLogs, String providerName) {
@@ -19,12 +59,18 @@ public class ErrorExplanationAction implements RunAction2 {
         this.originalErrorLogs = originalErrorLogs;
         this.timestamp = System.currentTimeMillis();
         this.providerName = providerName;
+        this.validExplanation = explanation != null && !explanation.isBlank();
+        this.unwritten = true;
     }
 
     public Object readResolve() {
         if (providerName == null) {
             providerName = "Unknown";
         }
+        if (explanation != null) {
+            // stored inline by an earlier version, moved to the payload file in onLoad
+            validExplanation = !explanation.isBlank();
+        }
         return this;
     }
 
@@ -44,11 +90,11 @@ public class ErrorExplanationAction implements RunAction2 {
     }
 
     public String getExplanation() {
-        return explanation;
+        return getPayload().explanation;
     }
 
     public String getOriginalErrorLogs() {
-        return originalErrorLogs;
+        return getPayload().originalErrorLogs;
     }
 
     public long getTimestamp() {
@@ -63,14 +109,43 @@ public class ErrorExplanationAction implements RunAction2 {
         return providerName;
     }
 
+    /**
+     * Get the run whose explanation of a similar or identical failure was reused for this one.
+     * @return the run, or {@code null} if the explanation was not reused or the run no longer exists
+     */
+    @CheckForNull
+    public Run<?, ?> getReusedFrom() {
+        return reusedFrom != null ? Run.fromExternalizableId(reusedFrom) : null;
+    }
+
+    @CheckForNull
+    String getReusedFromId() {
+        return reusedFrom;
+    }
+
+    void setReusedFrom(@CheckForNull String runId) {
+        this.reusedFrom = runId;
+    }
+
     @Override
     public void onAttached(Run<?, ?> r) {
         this.run = r;
+        externalize();
     }
 
     @Override
     public void onLoad(Run<?, ?> r) {
         this.run = r;
+        if (externalize()) {
+            // save the migration once rather than on every load, but not while the run is loading
+            Timer.get().submit(() -> {
+                try {
+                    r.save();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to save the migrated error explanation of " + r.getFullDisplayName(), e);
+                }
+            });
+        }
     }
 
     /**
@@ -86,6 +161,112 @@ public class ErrorExplanationAction implements RunAction2 {
      * @return true if explanation is not null, not empty, and not just whitespace
      */
     public boolean hasValidExplanation() {
-        return explanation != null && !explanation.isBlank();
+        return validExplanation;
+    }
+
+    private synchronized Payload getPayload() {
+        if (unwritten || explanation != null || originalErrorLogs != null || run == null) {
+            return new Payload(explanation, originalErrorLogs);
+        }
+        SoftReference<Payload> ref = payload;
+        Payload result = ref != null ? ref.get() : null;
+        if (result == null) {
+            result = readPayload(getPayloadFile());
+            payload = new SoftReference<>(result);
+        }
+        return result;
+    }
+
+    /**
+     * Move inline explanation and error logs to the payload file, keeping them inline if writing fails.
+     * The payload of an action stored inline by an earlier version is only written if the file does not exist yet,
+     * e.g. because the migration was not saved.
+     * @return whether inline explanation and error logs of an earlier version were moved
+     */
+    private synchronized boolean externalize() {
+        if (run == null || (!unwritten && explanation == null && originalErrorLogs == null)) {
+            return false;
+        }
+        boolean legacy = !unwritten;
+        Payload inline = new Payload(explanation, originalErrorLogs);
+        File file = getPayloadFile();
+        try {
+            if (!legacy || !file.isFile()) {
+                writePayload(file, inline);
+            }
+            payload = new SoftReference<>(inline);
+            unwritten = false;
+            explanation = null;
+            originalErrorLogs = null;
+            return legacy;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to store error explanation of " + run.getFullDisplayName(), e);
+            return false;
+        }
+    }
+
+    private File getPayloadFile() {
+        return new File(run.getRootDir(), PAYLOAD_FILE);
+    }
+
+    static void writePayload(File file, Payload payload) throws IOException {
+        Path target = file.toPath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), PAYLOAD_FILE, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp));
+                 DataOutputStream data = new DataOutputStream(out)) {
+                writeString(data, payload.explanation);
+                writeString(data, payload.originalErrorLogs);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static Payload readPayload(File file) {
+        if (!file.isFile()) {
+            return new Payload(null, null);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()));
+             DataInputStream data = new DataInputStream(in)) {
+            String explanation = readString(data);
+            String originalErrorLogs = readString(data);
+            return new Payload(explanation, originalErrorLogs);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read error explanation from " + file, e);
+            return new Payload(null, null);
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Payload {
+        private final String explanation;
+        private final String originalErrorLogs;
+
+        Payload(String explanation, String originalErrorLogs) {
+            this.explanation = explanation;
+            this.originalErrorLogs = originalErrorLogs;
+        }
     }
 }
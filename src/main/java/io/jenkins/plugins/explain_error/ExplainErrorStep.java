@@ -19,6 +19,7 @@ public class ExplainErrorStep extends Step {
 
     private String logPattern;
     private int maxLines;
+    private boolean failedStepsOnly;
 
     @DataBoundConstructor
     public ExplainErrorStep() {
@@ -44,6 +45,15 @@ public class ExplainErrorStep extends Step {
         this.maxLines = maxLines > 0 ? maxLines : 100;
     }
 
+    public boolean isFailedStepsOnly() {
+        return failedStepsOnly;
+    }
+
+    @DataBoundSetter
+    public void setFailedStepsOnly(boolean failedStepsOnly) {
+        this.failedStepsOnly = failedStepsOnly;
+    }
+
     @Override
     public StepExecution start(StepContext context) throws Exception {
         return new ExplainErrorStepExecution(context, this);
@@ -84,7 +94,7 @@ public class ExplainErrorStep extends Step {
             TaskListener listener = getContext().get(TaskListener.class);
 
             ErrorExplainer explainer = new ErrorExplainer();
-            explainer.explainError(run, listener, step.getLogPattern(), step.getMaxLines());
+            explainer.explainError(run, listener, step.getLogPattern(), step.getMaxLines(), step.isFailedStepsOnly());
 
             return null;
         }
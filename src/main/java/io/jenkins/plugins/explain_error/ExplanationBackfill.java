@@ -0,0 +1,73 @@
+package io.jenkins.plugins.explain_error;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Job;
+import hudson.model.Run;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Fills the {@link ExplanationStore} and the {@link SimilarityIndex} from the explanations stored in all builds when
+ * they have not been filled yet, e.g. after the plugin was installed or updated. Both are filled in a single pass over
+ * the builds in the background, and each records that it was filled only once the pass is complete, so that an
+ * interrupted pass is repeated after a restart.
+ */
+@Extension
+public class ExplanationBackfill {
+
+    private static final Logger LOGGER = Logger.getLogger(ExplanationBackfill.class.getName());
+
+    private boolean scheduled;
+
+    public static ExplanationBackfill get() {
+        return ExtensionList.lookupSingleton(ExplanationBackfill.class);
+    }
+
+    /**
+     * Fill the stores that have not been filled yet in the background, unless that is already scheduled.
+     */
+    synchronized void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            Timer.get().submit(this::run);
+        }
+    }
+
+    private void run() {
+        synchronized (this) {
+            scheduled = false;
+        }
+        ExplanationStore store = ExplanationStore.get();
+        SimilarityIndex index = SimilarityIndex.get();
+        boolean fillStore = !store.isBackfilled();
+        boolean fillIndex = !index.isBackfilled();
+        if (!fillStore && !fillIndex) {
+            return;
+        }
+        int count = 0;
+        for (Job<?, ?> job : Jenkins.get().allItems(Job.class)) {
+            for (Run<?, ?> run : job.getBuilds()) {
+                ErrorExplanationAction action = run.getAction(ErrorExplanationAction.class);
+                if (action == null || !action.hasValidExplanation()) {
+                    continue;
+                }
+                if (fillStore) {
+                    store.backfill(run, action);
+                }
+                if (fillIndex) {
+                    index.backfill(run, action);
+                }
+                count++;
+            }
+        }
+        if (fillStore) {
+            store.backfilled();
+        }
+        if (fillIndex) {
+            index.backfilled();
+        }
+        LOGGER.fine("Added " + count + " past explanations to the explanation store and the similarity index.");
+    }
+}
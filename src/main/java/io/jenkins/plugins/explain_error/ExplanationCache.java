@@ -0,0 +1,99 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of explanations keyed by {@link FailureFingerprint}.
+ * Entries are evicted in least recently used order once the size bound is reached and expire after the configured
+ * time to live.
+ */
+public class ExplanationCache {
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int maxEntries;
+    private volatile long ttlMillis;
+
+    public ExplanationCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Look up the explanation for a fingerprint.
+     * @param fingerprint the fingerprint
+     * @return the cached explanation or {@code null} if there is none or it has expired
+     */
+    @CheckForNull
+    public synchronized String get(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry != null && System.currentTimeMillis() - entry.created > ttlMillis) {
+            entries.remove(fingerprint);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.explanation;
+    }
+
+    public synchronized void put(String fingerprint, String explanation) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(fingerprint, new Entry(explanation, System.currentTimeMillis()));
+    }
+
+    /**
+     * Change the limits of the cache, evicting entries if the cache is now too large.
+     * @param maxEntries maximum number of entries
+     * @param ttlMillis time to live of an entry in milliseconds
+     */
+    public synchronized void setLimits(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > Math.max(maxEntries, 0) && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static final class Entry {
+        private final String explanation;
+        private final long created;
+
+        private Entry(String explanation, long created) {
+            this.explanation = explanation;
+            this.created = created;
+        }
+    }
+}
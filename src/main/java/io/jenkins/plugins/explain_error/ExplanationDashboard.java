@@ -0,0 +1,382 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import hudson.model.Run;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.springframework.security.access.AccessDeniedException;
+
+/**
+ * Page listing the latest explanations across all jobs, with filters and pages, and the same through the remote API
+ * for reporting tools. The explanations are read from the {@link ExplanationStore}, so only the jobs of the listed explanations are
+ * looked up and no build is loaded.
+ */
+@Extension
+@ExportedBean
+public class ExplanationDashboard implements RootAction {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Number of explanations taken from the store at once while walking it.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    @Override
+    public String getIconFileName() {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        return config.isEnableExplanation() && Jenkins.get().hasPermission(Jenkins.READ) ? "symbol-cube" : null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Failure Explanations";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "failure-explanations";
+    }
+
+    /**
+     * Get the page of explanations selected by the parameters of the current request, see {@link #query}.
+     */
+    public Page getPage(StaplerRequest2 req) {
+        return query(req.getParameter("folder"), req.getParameter("provider"), req.getParameter("fingerprint"),
+                parseInt(req.getParameter("start"), 0), parseInt(req.getParameter("size"), DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * Remote API returning the page of explanations selected by the parameters {@code folder}, {@code provider},
+     * {@code fingerprint}, {@code start} and {@code size} of {@link #query}, e.g.
+     * {@code api/json?tree=explanations[job,build,url]&folder=team}. The text of the explanations is only included
+     * when asked for, e.g. with {@code tree=explanations[job,build,explanation]}, as it loads the builds of the page.
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * @return the explanations of the page selected by the parameters of the current request, for the remote API
+     */
+    @Exported(name = "explanations")
+    public List<Row> getCurrentRows() {
+        return getCurrentPage().getRows();
+    }
+
+    /**
+     * @return whether more explanations match the parameters of the current request after its page, for the remote
+     * API
+     */
+    @Exported(name = "more")
+    public boolean isMore() {
+        return getCurrentPage().hasNext();
+    }
+
+    /**
+     * Get the page selected by the parameters of the current request, selected once per request.
+     */
+    private Page getCurrentPage() {
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        if (req == null) {
+            return query(null, null, null, 0, DEFAULT_PAGE_SIZE);
+        }
+        Page page = (Page) req.getAttribute(Page.class.getName());
+        if (page == null) {
+            page = getPage(req);
+            req.setAttribute(Page.class.getName(), page);
+        }
+        return page;
+    }
+
+    /**
+     * Select a page of explanations of the jobs the current user may read, newest first. The store is walked from the
+     * newest explanation until the page is full, so whether there are more explanations is known but not how many.
+     * @param folder full name of a folder or job whose explanations are listed, all if empty
+     * @param provider name of the provider whose explanations are listed, all if empty
+     * @param fingerprint start of the fingerprint of the failures that are listed, all if empty
+     * @param start number of matching explanations to skip
+     * @param size maximum number of explanations in the page, at most {@link #MAX_PAGE_SIZE}
+     * @return the page
+     */
+    @NonNull
+    public Page query(@CheckForNull String folder, @CheckForNull String provider, @CheckForNull String fingerprint,
+                      int start, int size) {
+        Jenkins.get().checkPermission(Jenkins.READ);
+        String folderName = Util.fixEmptyAndTrim(folder);
+        if (folderName != null) {
+            folderName = folderName.replaceAll("^/+|/+$", "");
+        }
+        String providerName = Util.fixEmptyAndTrim(provider);
+        String fingerprintPrefix = Util.fixEmptyAndTrim(fingerprint);
+        start = Math.max(start, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        ExplanationStore store = ExplanationStore.get();
+        // the jobs visible to the user by full name, null if not visible
+        Map<String, Job<?, ?>> jobs = new HashMap<>();
+        List<Row> rows = new ArrayList<>();
+        int matches = 0;
+        boolean more = false;
+        long before = Long.MAX_VALUE;
+        while (!more) {
+            List<ExplanationStore.Record> records = store.getNewestRecords(before, CHUNK_SIZE);
+            if (records.isEmpty()) {
+                break;
+            }
+            for (ExplanationStore.Record record : records) {
+                if (folderName != null && !record.getJob().equals(folderName)
+                        && !record.getJob().startsWith(folderName + "/")) {
+                    continue;
+                }
+                if (providerName != null && !providerName.equals(record.getProviderName())) {
+                    continue;
+                }
+                if (fingerprintPrefix != null && !record.getFingerprint().startsWith(fingerprintPrefix)) {
+                    continue;
+                }
+                if (!jobs.containsKey(record.getJob())) {
+                    jobs.put(record.getJob(), getJob(record.getJob()));
+                }
+                Job<?, ?> job = jobs.get(record.getJob());
+                if (job == null) {
+                    continue;
+                }
+                if (matches >= start + size) {
+                    more = true;
+                    break;
+                }
+                if (matches >= start) {
+                    rows.add(new Row(record, job));
+                }
+                matches++;
+            }
+            before = records.get(records.size() - 1).getTimestamp();
+        }
+        return new Page(rows, more, start, size, folderName, providerName, fingerprintPrefix);
+    }
+
+    @CheckForNull
+    private static Job<?, ?> getJob(String fullName) {
+        try {
+            return Jenkins.get().getItemByFullName(fullName, Job.class);
+        } catch (AccessDeniedException e) {
+            // the job may be discovered but not read
+            return null;
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * A page of explanations.
+     */
+    public static final class Page {
+        private final List<Row> rows;
+        private final boolean more;
+        private final int start;
+        private final int size;
+        private final String folder;
+        private final String provider;
+        private final String fingerprint;
+
+        Page(List<Row> rows, boolean more, int start, int size, String folder, String provider, String fingerprint) {
+            this.rows = rows;
+            this.more = more;
+            this.start = start;
+            this.size = size;
+            this.folder = folder;
+            this.provider = provider;
+            this.fingerprint = fingerprint;
+        }
+
+        public List<Row> getRows() {
+            return rows;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @CheckForNull
+        public String getFolder() {
+            return folder;
+        }
+
+        @CheckForNull
+        public String getProvider() {
+            return provider;
+        }
+
+        @CheckForNull
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public boolean hasPrevious() {
+            return start > 0;
+        }
+
+        /**
+         * @return whether more explanations match the filters after this page
+         */
+        public boolean hasNext() {
+            return more;
+        }
+
+        public int getPreviousStart() {
+            return Math.max(start - size, 0);
+        }
+
+        public int getNextStart() {
+            return start + size;
+        }
+    }
+
+    /**
+     * An explanation in a page, with the job it belongs to.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Row {
+        private final ExplanationStore.Record record;
+        private final Job<?, ?> job;
+
+        Row(ExplanationStore.Record record, Job<?, ?> job) {
+            this.record = record;
+            this.job = job;
+        }
+
+        public ExplanationStore.Record getRecord() {
+            return record;
+        }
+
+        public Job<?, ?> getJob() {
+            return job;
+        }
+
+        /**
+         * @return the URL of the explanation relative to the root of Jenkins
+         */
+        public String getUrl() {
+            return job.getUrl() + record.getBuild() + "/error-explanation/";
+        }
+
+        /**
+         * @return the full name of the job
+         */
+        @Exported(name = "job")
+        public String getJobName() {
+            return record.getJob();
+        }
+
+        @Exported(name = "build")
+        public int getBuildNumber() {
+            return record.getBuild();
+        }
+
+        /**
+         * @return the absolute URL of the explanation
+         */
+        @Exported(name = "url")
+        public String getAbsoluteUrl() {
+            String rootUrl = Jenkins.get().getRootUrl();
+            return rootUrl != null ? rootUrl + getUrl() : getUrl();
+        }
+
+        @Exported
+        public long getTimestamp() {
+            return record.getTimestamp();
+        }
+
+        @Exported(name = "provider")
+        public String getProviderName() {
+            return record.getProviderName();
+        }
+
+        @Exported
+        public String getFingerprint() {
+            return record.getFingerprint();
+        }
+
+        @Exported
+        public long getLatencyMillis() {
+            return record.getLatencyMillis();
+        }
+
+        /**
+         * @return the run whose explanation was reused, or {@code null} if there is none or the current user may not
+         *         read it
+         */
+        @CheckForNull
+        public Run<?, ?> getReusedFromRun() {
+            String runId = record.getReusedFrom();
+            if (runId == null) {
+                return null;
+            }
+            try {
+                return Run.fromExternalizableId(runId);
+            } catch (AccessDeniedException e) {
+                // the job may be discovered but not read
+                return null;
+            }
+        }
+
+        /**
+         * @return the externalizable id of the run whose explanation was reused, or {@code null} if there is none or
+         *         the current user may not read it
+         */
+        @Exported
+        @CheckForNull
+        public String getReusedFrom() {
+            Run<?, ?> run = getReusedFromRun();
+            return run != null ? run.getExternalizableId() : null;
+        }
+
+        /**
+         * @return the text of the explanation, which loads the build, so only included when asked for
+         */
+        @Exported(visibility = 1)
+        @CheckForNull
+        public String getExplanation() {
+            ErrorExplanationAction action = record.getAction();
+            return action != null ? action.getExplanation() : null;
+        }
+
+        public String getFormattedTimestamp() {
+            return new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.util.Date(record.getTimestamp()));
+        }
+
+        /**
+         * @return the first characters of the fingerprint, enough to tell failures apart on the page
+         */
+        public String getShortFingerprint() {
+            return record.getFingerprint().substring(0, Math.min(12, record.getFingerprint().length()));
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.Terminator;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Runs explanations requested from the console page or of completed builds, see {@link AutoExplanationListener}, in the
+ * background on a bounded executor, so that neither the HTTP request thread nor the build waits for the provider.
+ * Explanations of completed builds have an executor of their own, so that a burst of failed builds does not hold up
+ * the explanations users are waiting for.
+ */
+@Extension
+public class ExplanationJobs {
+
+    private static final Logger LOGGER = Logger.getLogger(ExplanationJobs.class.getName());
+
+    static final int THREADS = SystemProperties.getInteger(ExplanationJobs.class.getName() + ".threads", 4);
+    static final int QUEUE_SIZE = SystemProperties.getInteger(ExplanationJobs.class.getName() + ".queueSize", 50);
+    static final int AUTOMATIC_THREADS = SystemProperties.getInteger(
+            ExplanationJobs.class.getName() + ".automaticThreads", 1);
+    static final int AUTOMATIC_QUEUE_SIZE = SystemProperties.getInteger(
+            ExplanationJobs.class.getName() + ".automaticQueueSize", 50);
+
+    /**
+     * How long a finished job is kept so that its result can still be fetched.
+     */
+    static final long RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private volatile ThreadPoolExecutor executor;
+    private volatile ThreadPoolExecutor automaticExecutor;
+
+    public static ExplanationJobs get() {
+        return ExtensionList.lookupSingleton(ExplanationJobs.class);
+    }
+
+    /**
+     * Get the executor shared by all background explanation work of the plugin.
+     * @return the executor
+     */
+    @NonNull
+    public ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                result = executor;
+                if (result == null) {
+                    result = newExecutor(THREADS, QUEUE_SIZE, "ExplainError");
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ThreadPoolExecutor getAutomaticExecutor() {
+        ThreadPoolExecutor result = automaticExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = automaticExecutor;
+                if (result == null) {
+                    result = newExecutor(AUTOMATIC_THREADS, AUTOMATIC_QUEUE_SIZE, "ExplainError automatic");
+                    automaticExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, int queueSize, String name) {
+        ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new NamingThreadFactory(new DaemonThreadFactory(), name));
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+
+    /**
+     * Queue an explanation job requested by the current user, which runs with their permissions.
+     * @param runId the externalizable id of the run the job belongs to
+     * @param work the work to do, reporting its result to the job
+     * @return the queued job
+     * @throws RejectedExecutionException if the queue is full
+     */
+    @NonNull
+    public Job submit(@NonNull String runId, @NonNull JobWork work) {
+        return submit(runId, work, false, getExecutor(), Jenkins.getAuthentication2());
+    }
+
+    /**
+     * Queue an explanation job of a completed build, which runs as {@link ACL#SYSTEM2} on the executor for
+     * automatic explanations.
+     * @param runId the externalizable id of the run the job belongs to
+     * @param work the work to do, reporting its result to the job
+     * @return the queued job
+     * @throws RejectedExecutionException if the queue is full
+     */
+    @NonNull
+    public Job submitAutomatic(@NonNull String runId, @NonNull JobWork work) {
+        return submit(runId, work, true, getAutomaticExecutor(), ACL.SYSTEM2);
+    }
+
+    private Job submit(String runId, JobWork work, boolean automatic, ThreadPoolExecutor executor,
+                       Authentication authentication) {
+        purge();
+        Job job = new Job(UUID.randomUUID().toString(), runId, automatic);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> {
+                job.state = State.RUNNING;
+                try (ACLContext ignored = ACL.as2(authentication)) {
+                    work.run(job);
+                } catch (RuntimeException e) {
+                    LOGGER.warning("Explanation job " + job.getId() + " failed: " + e.getMessage());
+                    job.complete("error", "Unknown", "Error: " + e.getMessage());
+                } finally {
+                    if (!job.isFinished()) {
+                        job.complete("error", "Unknown", "Explanation finished without a result.");
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Get the unfinished job of a run, so that another request for the same run waits for it instead of starting a
+     * second explanation. An automatic job still waiting in its queue is not returned, a user should not wait for it;
+     * it finds the explanation of the user once it starts.
+     * @param runId the externalizable id of the run
+     * @return the queued or running job, or {@code null} if there is none
+     */
+    @CheckForNull
+    public Job getActiveJob(@NonNull String runId) {
+        for (Job job : jobs.values()) {
+            if (!job.isFinished() && job.getRunId().equals(runId)
+                    && (!job.isAutomatic() || job.getState() != State.QUEUED)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a job by its id.
+     * @param id the job id
+     * @param runId the externalizable id of the run the job must belong to
+     * @return the job or {@code null} if it does not exist, has expired or belongs to another run
+     */
+    @CheckForNull
+    public Job getJob(String id, String runId) {
+        if (id == null) {
+            return null;
+        }
+        Job job = jobs.get(id);
+        if (job == null || !job.getRunId().equals(runId)) {
+            return null;
+        }
+        return job;
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isFinished() && now - job.finished > RETENTION_MILLIS);
+    }
+
+    @Terminator
+    public static void shutdown() {
+        ExplanationJobs jobs = ExtensionList.lookup(ExplanationJobs.class).get(ExplanationJobs.class);
+        if (jobs == null) {
+            return;
+        }
+        if (jobs.executor != null) {
+            jobs.executor.shutdownNow();
+        }
+        if (jobs.automaticExecutor != null) {
+            jobs.automaticExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * The work done by a job.
+     */
+    @FunctionalInterface
+    public interface JobWork {
+        void run(Job job);
+    }
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * A queued, running or finished explanation.
+     */
+    public static final class Job {
+        private final String id;
+        private final String runId;
+        private final boolean automatic;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile State state = State.QUEUED;
+        private volatile String status;
+        private volatile String providerName;
+        private volatile String message;
+        private volatile long finished;
+        /**
+         * Parts of the explanation received so far.
+         */
+        private final List<String> tokens = new ArrayList<>();
+
+        Job(String id, String runId, boolean automatic) {
+            this.id = id;
+            this.runId = runId;
+            this.automatic = automatic;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return whether the job explains a completed build, see {@link #submitAutomatic}
+         */
+        public boolean isAutomatic() {
+            return automatic;
+        }
+
+        /**
+         * @return the response status, one of {@code success}, {@code warning} or {@code error}, once finished
+         */
+        public String getStatus() {
+            return status;
+        }
+
+        public String getProviderName() {
+            return providerName;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isFinished() {
+            return state == State.DONE || state == State.FAILED;
+        }
+
+        /**
+         * Record the result of the job.
+         * @param status one of {@code success}, {@code warning} or {@code error}
+         * @param providerName the name of the provider
+         * @param message the explanation or the error message
+         */
+        public void complete(String status, String providerName, String message) {
+            synchronized (this) {
+                if (isFinished()) {
+                    return;
+                }
+                this.status = status;
+                this.providerName = providerName;
+                this.message = message;
+                this.finished = System.currentTimeMillis();
+                this.state = "success".equals(status) ? State.DONE : State.FAILED;
+                notifyAll();
+            }
+            completion.complete(null);
+        }
+
+        /**
+         * Record a part of the explanation as it arrives from the provider, see {@link #awaitTokens}.
+         * @param token the part of the explanation
+         */
+        public synchronized void addToken(String token) {
+            if (!isFinished()) {
+                tokens.add(token);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait until parts of the explanation after the given number of parts arrive, the job finishes or the timeout
+         * expires.
+         * @param from the number of parts already seen
+         * @param timeoutMillis maximum time to wait
+         * @return the new parts, empty if the job finished or the timeout expired without new parts
+         */
+        public synchronized List<String> awaitTokens(int from, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while (tokens.size() <= from && !isFinished() && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return tokens.size() > from ? new ArrayList<>(tokens.subList(from, tokens.size())) : List.of();
+        }
+
+        /**
+         * Get a future completed once the job has finished.
+         * @return the future
+         */
+        public CompletableFuture<Void> getCompletion() {
+            return completion.copy();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.Terminator;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import jenkins.model.Jenkins;
+
+/**
+ * Timers, histograms and counters of the explanation pipeline.
+ * The values are recorded in the registry of the metrics plugin when it is installed, otherwise each metric is
+ * registered as an MBean in the {@value #DOMAIN} domain.
+ * All metric names start with {@value #PREFIX}.
+ */
+@Extension
+public class ExplanationMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(ExplanationMetrics.class.getName());
+
+    static final String PREFIX = "explain-error.";
+    static final String DOMAIN = "io.jenkins.plugins.explain_error";
+
+    /** Time to read the tail of a build log, in milliseconds. */
+    public static final String LOG_READ = "log.read";
+    /** Time to extract the error logs including reading and filtering, in milliseconds. */
+    public static final String EXTRACTION = "extraction";
+    /** Characters of the error logs of an explanation asked from the providers, without the rest of the prompt. */
+    public static final String ERROR_LOG_CHARS = "error-logs.chars";
+    /** Estimated tokens of the error logs of an explanation asked from the providers. */
+    public static final String ERROR_LOG_TOKENS = "error-logs.tokens";
+    /** Time spent waiting for a free provider slot, in milliseconds. */
+    public static final String QUEUE_WAIT = "queue.wait";
+    /** Time of a provider request, followed by provider name and model, in milliseconds. */
+    public static final String PROVIDER_LATENCY = "provider.latency.";
+    /** Time of a whole explanation including cache lookup and provider request, in milliseconds. */
+    public static final String EXPLANATION_LATENCY = "explanation.latency";
+    /** Failed explanations, followed by the level of the {@link ExplanationException}. */
+    public static final String ERRORS = "errors.";
+    public static final String CACHE_HITS = "cache.hits";
+    public static final String CACHE_MISSES = "cache.misses";
+    /** Explanations reused from a similar past failure, see {@link SimilarityIndex}. */
+    public static final String SIMILARITY_HITS = "similarity.hits";
+    public static final String SIMILARITY_MISSES = "similarity.misses";
+    /** Explanations reused from the previous build that failed the same way. */
+    public static final String STREAK_HITS = "streak.hits";
+    public static final String STREAK_MISSES = "streak.misses";
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public static ExplanationMetrics get() {
+        return ExtensionList.lookupSingleton(ExplanationMetrics.class);
+    }
+
+    /**
+     * Record a duration.
+     * @param name the metric name
+     * @param startNanos the {@link System#nanoTime()} at the start of the measured operation
+     */
+    public void time(@NonNull String name, long startNanos) {
+        timeMillis(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Record a duration.
+     * @param name the metric name
+     * @param millis the duration in milliseconds
+     */
+    public void timeMillis(@NonNull String name, long millis) {
+        if (isMetricsPlugin()) {
+            MetricsPluginRecorder.time(PREFIX + name, millis);
+        }
+        histograms.computeIfAbsent(name, this::createHistogram).update(millis);
+    }
+
+    /**
+     * Record a value in a histogram.
+     * @param name the metric name
+     * @param value the value
+     */
+    public void update(@NonNull String name, long value) {
+        if (isMetricsPlugin()) {
+            MetricsPluginRecorder.update(PREFIX + name, value);
+        }
+        histograms.computeIfAbsent(name, this::createHistogram).update(value);
+    }
+
+    /**
+     * Increment a counter.
+     * @param name the metric name
+     */
+    public void increment(@NonNull String name) {
+        if (isMetricsPlugin()) {
+            MetricsPluginRecorder.increment(PREFIX + name);
+        }
+        counters.computeIfAbsent(name, this::createCounter).increment();
+    }
+
+    /**
+     * Get a histogram or timer that has been recorded.
+     * @param name the metric name
+     * @return the histogram, or {@code null} if nothing has been recorded
+     */
+    public Histogram getHistogram(@NonNull String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Get a counter that has been incremented.
+     * @param name the metric name
+     * @return the count
+     */
+    public long getCount(@NonNull String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter.getCount() : 0;
+    }
+
+    /**
+     * Get the name of the latency metric of a provider.
+     * @param provider the provider
+     * @return the metric name
+     */
+    @NonNull
+    public static String providerLatency(@NonNull BaseAIProvider provider) {
+        return PROVIDER_LATENCY + sanitize(provider.getProviderName()) + "." + sanitize(provider.getModel());
+    }
+
+    /**
+     * Build the part of a metric name identifying a provider and model.
+     */
+    static String sanitize(String value) {
+        return value == null || value.isBlank() ? "unknown" : value.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    /**
+     * Whether the metrics plugin is installed, looked up each time as it can be installed or removed while Jenkins runs.
+     */
+    private static boolean isMetricsPlugin() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null && jenkins.getPlugin("metrics") != null;
+    }
+
+    private Histogram createHistogram(String name) {
+        Histogram histogram = new Histogram();
+        register("Histogram", name, histogram, HistogramMBean.class);
+        return histogram;
+    }
+
+    private Counter createCounter(String name) {
+        Counter counter = new Counter();
+        register("Counter", name, counter, CounterMBean.class);
+        return counter;
+    }
+
+    private <T> void register(String type, String name, T metric, Class<T> mbeanInterface) {
+        if (isMetricsPlugin()) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new StandardMBean(metric, mbeanInterface), objectName);
+            synchronized (registered) {
+                registered.add(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.FINE, "Failed to register metric " + name, e);
+        }
+    }
+
+    @Terminator
+    public static void unregister() {
+        ExplanationMetrics metrics = ExtensionList.lookup(ExplanationMetrics.class).get(ExplanationMetrics.class);
+        if (metrics == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (metrics.registered) {
+            for (ObjectName objectName : metrics.registered) {
+                try {
+                    server.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    LOGGER.log(Level.FINE, "Failed to unregister metric " + objectName, e);
+                }
+            }
+            metrics.registered.clear();
+        }
+    }
+
+    public interface HistogramMBean {
+        long getCount();
+
+        double getMean();
+
+        long getMax();
+
+        long get50thPercentile();
+
+        long get95thPercentile();
+
+        long get99thPercentile();
+    }
+
+    public interface CounterMBean {
+        long getCount();
+    }
+
+    /**
+     * Distribution of the most recent {@value #SAMPLES} values, with count, mean and max over all values.
+     */
+    public static final class Histogram implements HistogramMBean {
+        static final int SAMPLES = 1024;
+
+        private final long[] samples = new long[SAMPLES];
+        private long count;
+        private long sum;
+        private long max;
+
+        synchronized void update(long value) {
+            samples[(int) (count % SAMPLES)] = value;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        @Override
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        @Override
+        public synchronized long getMax() {
+            return max;
+        }
+
+        @Override
+        public long get50thPercentile() {
+            return getPercentile(0.5);
+        }
+
+        @Override
+        public long get95thPercentile() {
+            return getPercentile(0.95);
+        }
+
+        @Override
+        public long get99thPercentile() {
+            return getPercentile(0.99);
+        }
+
+        /**
+         * @param quantile the quantile between 0 and 1
+         * @return the value at the given quantile of the recent values
+         */
+        long getPercentile(double quantile) {
+            long[] sorted;
+            synchronized (this) {
+                if (count == 0) {
+                    return 0;
+                }
+                sorted = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    public static final class Counter implements CounterMBean {
+        private final AtomicLong count = new AtomicLong();
+
+        void increment() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent requests to each AI provider.
+ * Every call to a provider acquires a {@link Permit} first. When all slots of a provider are in use, callers wait in a
+ * bounded queue for a limited time and are rejected when the queue is full or the wait times out.
+ */
+@Extension
+public class ExplanationScheduler {
+
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    public static ExplanationScheduler get() {
+        return ExtensionList.lookupSingleton(ExplanationScheduler.class);
+    }
+
+    /**
+     * Wait for a free slot of the given provider.
+     * @param provider the provider that is going to be called
+     * @param listener receives a note when the caller has to wait
+     * @return the permit, to be closed once the provider has answered
+     * @throws ExplanationException if the queue is full, the wait timed out or the thread was interrupted
+     */
+    @NonNull
+    public Permit acquire(@NonNull BaseAIProvider provider, @NonNull TaskListener listener) throws ExplanationException {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        int maxInFlight = Math.max(config.getMaxConcurrentExplanations(), 1);
+        String key = getKey(provider);
+        Limiter limiter = limiters.computeIfAbsent(key, k -> new Limiter(k, maxInFlight));
+        limiter.resize(maxInFlight);
+        return limiter.acquire(config.getMaxQueuedExplanations(), config.getQueueTimeoutSeconds(), listener);
+    }
+
+    /**
+     * Get the statistics of all providers that have been called.
+     * @return the statistics
+     */
+    @NonNull
+    public List<Limiter> getLimiters() {
+        return new ArrayList<>(limiters.values());
+    }
+
+    static String getKey(BaseAIProvider provider) {
+        String url = provider.getUrl();
+        return provider.getProviderName() + (url == null || url.isBlank() ? "" : " (" + url + ")");
+    }
+
+    /**
+     * Slots and statistics of one provider.
+     */
+    public static final class Limiter {
+        private final String name;
+        private volatile int maxInFlight;
+        private final Slots slots;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitMillis = new AtomicLong();
+        private final AtomicLong maxWaitMillis = new AtomicLong();
+
+        Limiter(String name, int maxInFlight) {
+            this.name = name;
+            this.maxInFlight = maxInFlight;
+            this.slots = new Slots(maxInFlight);
+        }
+
+        /**
+         * Change the number of slots. Requests in flight keep their slots, when the number shrinks new requests wait
+         * until enough of them have finished.
+         * @param maxInFlight the new number of slots
+         */
+        synchronized void resize(int maxInFlight) {
+            int delta = maxInFlight - this.maxInFlight;
+            if (delta > 0) {
+                slots.release(delta);
+            } else if (delta < 0) {
+                slots.reducePermits(-delta);
+            }
+            this.maxInFlight = maxInFlight;
+        }
+
+        Permit acquire(int maxQueued, int timeoutSeconds, TaskListener listener) throws ExplanationException {
+            long start = System.nanoTime();
+            if (!slots.tryAcquire()) {
+                if (queued.incrementAndGet() > maxQueued) {
+                    queued.decrementAndGet();
+                    rejected.incrementAndGet();
+                    throw new ExplanationException("warning", "Too many AI explanation requests for " + name
+                            + " are waiting. The explanation was skipped, please try again later.");
+                }
+                listener.getLogger().println("Waiting for a free slot of " + name + " (" + queued.get()
+                        + " requests queued).");
+                try {
+                    if (!slots.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                        rejected.incrementAndGet();
+                        throw new ExplanationException("warning", "Timed out after " + timeoutSeconds
+                                + " seconds waiting for a free slot of " + name + ". The explanation was skipped.");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExplanationException("error", "Interrupted while waiting for a free slot of " + name + ".", e);
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            acquired.incrementAndGet();
+            totalWaitMillis.addAndGet(waited);
+            maxWaitMillis.accumulateAndGet(waited, Math::max);
+            return new Permit(slots, waited);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public int getInFlight() {
+            return maxInFlight - slots.availablePermits();
+        }
+
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+        public long getAcquired() {
+            return acquired.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public long getAverageWaitMillis() {
+            long count = acquired.get();
+            return count == 0 ? 0 : totalWaitMillis.get() / count;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis.get();
+        }
+    }
+
+    /**
+     * The slots of a provider, whose number can be reduced while they are in use.
+     */
+    private static final class Slots extends Semaphore {
+        Slots(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * A slot of a provider, released when closed.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Semaphore slots;
+        private final long waitMillis;
+        private boolean released;
+
+        Permit(Semaphore slots, long waitMillis) {
+            this.slots = slots;
+            this.waitMillis = waitMillis;
+        }
+
+        /**
+         * @return how long the caller waited for the slot
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                slots.release();
+            }
+        }
+    }
+}
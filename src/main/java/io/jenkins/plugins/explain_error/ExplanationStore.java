@@ -0,0 +1,478 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
+
+/**
+ * Record of all explanations across jobs, to answer questions such as which jobs failed in a certain way within a
+ * week without loading any build.
+ * The records are kept in memory ordered by time and by fingerprint, and persisted as an append-only file under
+ * {@code JENKINS_HOME}, see {@link JsonLinesFile}. Records are written in the background. The store is filled from
+ * the explanations stored in all builds once, see {@link ExplanationBackfill}.
+ */
+@Extension
+public class ExplanationStore {
+
+    /**
+     * Maximum number of records, the oldest ones are dropped.
+     */
+    static final int MAX_ENTRIES = SystemProperties.getInteger(ExplanationStore.class.getName() + ".maxEntries", 200_000);
+
+    static final String FILE = "explain-error/explanations.jsonl";
+
+    /**
+     * Records ordered by their timestamp, oldest first.
+     */
+    private final List<Record> records = new ArrayList<>();
+    private final Map<String, Record> byRun = new HashMap<>();
+    private final Map<String, List<Record>> byFingerprint = new HashMap<>();
+    private boolean loaded;
+    private boolean backfilled;
+
+    /**
+     * Lines waiting to be appended to the file, see {@link #flush()}.
+     */
+    private final Queue<JSONObject> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object fileLock = new Object();
+    private final JsonLinesFile log = new JsonLinesFile(FILE, "explanation store");
+
+    public static ExplanationStore get() {
+        return ExtensionList.lookupSingleton(ExplanationStore.class);
+    }
+
+    /**
+     * An explanation of a run.
+     */
+    public static final class Record {
+        private final String runId;
+        private final String job;
+        private final int build;
+        private final long timestamp;
+        private final String providerName;
+        private final String fingerprint;
+        private final long latencyMillis;
+        private final String reusedFrom;
+
+        Record(String runId, String job, int build, long timestamp, String providerName, String fingerprint,
+               long latencyMillis, @CheckForNull String reusedFrom) {
+            this.runId = runId;
+            this.job = job;
+            this.build = build;
+            this.timestamp = timestamp;
+            this.providerName = providerName;
+            this.fingerprint = fingerprint;
+            this.latencyMillis = latencyMillis;
+            this.reusedFrom = reusedFrom;
+        }
+
+        /**
+         * @return the externalizable id of the run holding the explanation
+         */
+        public String getRunId() {
+            return runId;
+        }
+
+        /**
+         * @return the full name of the job
+         */
+        public String getJob() {
+            return job;
+        }
+
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * @return when the explanation was made, in milliseconds since the epoch
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getProviderName() {
+            return providerName;
+        }
+
+        /**
+         * @return the fingerprint of the failure, see {@link FailureFingerprint#compute(String)}
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return how long the explanation took, or -1 if unknown
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * @return the externalizable id of the run whose explanation was reused, or {@code null}
+         */
+        @CheckForNull
+        public String getReusedFrom() {
+            return reusedFrom;
+        }
+
+        /**
+         * Load the run holding the explanation.
+         * @return the run, or {@code null} if it no longer exists
+         */
+        @CheckForNull
+        public Run<?, ?> getRun() {
+            return Run.fromExternalizableId(runId);
+        }
+
+        /**
+         * Load the explanation.
+         * @return the explanation, or {@code null} if the run or its explanation no longer exist
+         */
+        @CheckForNull
+        public ErrorExplanationAction getAction() {
+            Run<?, ?> run = getRun();
+            return run != null ? run.getAction(ErrorExplanationAction.class) : null;
+        }
+
+        JSONObject toJson() {
+            JSONObject line = new JSONObject();
+            line.put("run", runId);
+            line.put("job", job);
+            line.put("build", build);
+            line.put("time", timestamp);
+            line.put("provider", providerName);
+            line.put("fingerprint", fingerprint);
+            line.put("latency", latencyMillis);
+            if (reusedFrom != null) {
+                line.put("reusedFrom", reusedFrom);
+            }
+            return line;
+        }
+
+        static Record fromJson(JSONObject line) {
+            return new Record(line.getString("run"), line.getString("job"), line.getInt("build"),
+                    line.getLong("time"), line.optString("provider", null), line.getString("fingerprint"),
+                    line.optLong("latency", -1), line.optString("reusedFrom", null));
+        }
+    }
+
+    /**
+     * Record the explanation of a run, replacing an earlier one of the same run.
+     * @param run the run
+     * @param action the explanation stored in the run
+     * @param latencyMillis how long the explanation took, or -1 if unknown
+     */
+    public void record(@NonNull Run<?, ?> run, @NonNull ErrorExplanationAction action, long latencyMillis) {
+        Record record = new Record(run.getExternalizableId(), run.getParent().getFullName(), run.getNumber(),
+                action.getTimestamp(), action.getProviderName(),
+                FailureFingerprint.compute(action.getOriginalErrorLogs()), latencyMillis, action.getReusedFromId());
+        synchronized (this) {
+            load();
+            put(record);
+            evict();
+            // queued while locked so that the lines are in the same order as the changes
+            write(record.toJson());
+        }
+    }
+
+    /**
+     * Remove the explanation of a run.
+     * @param runId the externalizable id of the run
+     */
+    public void remove(@NonNull String runId) {
+        synchronized (this) {
+            if (!loaded || !delete(runId)) {
+                return;
+            }
+            write(removedLine(runId));
+        }
+    }
+
+    /**
+     * Get all explanations.
+     * @return a copy of the explanations, oldest first
+     */
+    @NonNull
+    public synchronized List<Record> getRecords() {
+        load();
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * Get the newest explanations made before a time, to walk the store from the newest explanation without copying
+     * all of it.
+     * @param before end of the range in milliseconds since the epoch, exclusive
+     * @param count the number of explanations, more are returned when older ones were made at the same time as the
+     *              oldest one, so that the next call may start at its timestamp
+     * @return the explanations, newest first
+     */
+    @NonNull
+    public synchronized List<Record> getNewestRecords(long before, int count) {
+        load();
+        int to = indexOf(before);
+        if (to == 0) {
+            return List.of();
+        }
+        // all explanations made at the time of the oldest one are returned, however many there are, as the next call
+        // starts before that time
+        long oldest = records.get(Math.max(to - Math.max(count, 1), 0)).timestamp;
+        int from = indexOf(oldest);
+        List<Record> result = new ArrayList<>(records.subList(from, to));
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Get the explanations made within a time range.
+     * @param from start of the range in milliseconds since the epoch, inclusive
+     * @param to end of the range in milliseconds since the epoch, exclusive
+     * @return the explanations, oldest first
+     */
+    @NonNull
+    public synchronized List<Record> getRecords(long from, long to) {
+        load();
+        if (from >= to) {
+            return List.of();
+        }
+        return new ArrayList<>(records.subList(indexOf(from), indexOf(to)));
+    }
+
+    /**
+     * Get the explanations of the same failure.
+     * @param fingerprint the fingerprint of the failure, see {@link FailureFingerprint#compute(String)}
+     * @return the explanations, oldest first
+     */
+    @NonNull
+    public synchronized List<Record> getRecords(@NonNull String fingerprint) {
+        load();
+        List<Record> result = byFingerprint.get(fingerprint);
+        return result != null ? new ArrayList<>(result) : List.of();
+    }
+
+    /**
+     * Get the explanation of a run.
+     * @param runId the externalizable id of the run
+     * @return the explanation, or {@code null} if none is recorded
+     */
+    @CheckForNull
+    public synchronized Record getRecord(@NonNull String runId) {
+        load();
+        return byRun.get(runId);
+    }
+
+    public synchronized int getSize() {
+        load();
+        return records.size();
+    }
+
+    /**
+     * Index of the first record at or after the given time.
+     */
+    private int indexOf(long timestamp) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (records.get(mid).timestamp < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void put(Record record) {
+        delete(record.runId);
+        // explanations mostly arrive in order, so this is usually the end
+        int position = indexOf(record.timestamp + 1);
+        records.add(position, record);
+        byRun.put(record.runId, record);
+        byFingerprint.computeIfAbsent(record.fingerprint, k -> new ArrayList<>()).add(record);
+        if (position < records.size() - 1) {
+            byFingerprint.get(record.fingerprint).sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+        }
+    }
+
+    private boolean delete(String runId) {
+        Record record = byRun.remove(runId);
+        if (record == null) {
+            return false;
+        }
+        int position = indexOf(record.timestamp);
+        while (records.get(position) != record) {
+            position++;
+        }
+        records.remove(position);
+        List<Record> sameFailure = byFingerprint.get(record.fingerprint);
+        sameFailure.remove(record);
+        if (sameFailure.isEmpty()) {
+            byFingerprint.remove(record.fingerprint);
+        }
+        return true;
+    }
+
+    private void evict() {
+        int excess = records.size() - Math.max(MAX_ENTRIES, 0);
+        if (excess <= 0) {
+            return;
+        }
+        for (Record record : new ArrayList<>(records.subList(0, excess))) {
+            delete(record.runId);
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        // nothing is written before the store is loaded
+        backfilled = log.read(line -> {
+            if (line.optBoolean("removed")) {
+                delete(line.getString("run"));
+            } else {
+                put(Record.fromJson(line));
+            }
+        });
+        if (!backfilled) {
+            ExplanationBackfill.get().schedule();
+        }
+        evict();
+    }
+
+    synchronized boolean isBackfilled() {
+        load();
+        return backfilled;
+    }
+
+    /**
+     * Add the explanation stored in a run while the store is filled, see {@link ExplanationBackfill}.
+     */
+    void backfill(Run<?, ?> run, ErrorExplanationAction action) {
+        // explanations made since the store was created are already recorded
+        if (getRecord(run.getExternalizableId()) == null) {
+            record(run, action, -1);
+        }
+    }
+
+    /**
+     * Mark the store as filled once all builds have been looked at.
+     */
+    synchronized void backfilled() {
+        backfilled = true;
+        write(JsonLinesFile.backfilledLine());
+    }
+
+    /**
+     * Queue a line for the file and make sure it is written soon.
+     */
+    private void write(JSONObject line) {
+        pending.add(line);
+        if (flushScheduled.compareAndSet(false, true)) {
+            Timer.get().submit(this::flush);
+        }
+    }
+
+    /**
+     * Append the queued lines to the file, and compact it when it holds mostly outdated lines.
+     */
+    void flush() {
+        flushScheduled.set(false);
+        synchronized (fileLock) {
+            List<JSONObject> changes = new ArrayList<>();
+            JSONObject line;
+            while ((line = pending.poll()) != null) {
+                changes.add(line);
+            }
+            if (!changes.isEmpty() && !log.append(changes)) {
+                return;
+            }
+            List<JSONObject> snapshot = new ArrayList<>();
+            boolean filled;
+            synchronized (this) {
+                if (!log.isMostlyOutdated(records.size())) {
+                    return;
+                }
+                for (Record record : records) {
+                    snapshot.add(record.toJson());
+                }
+                filled = backfilled;
+            }
+            // lines queued in the meantime are appended afterwards
+            log.rewrite(snapshot, filled);
+        }
+    }
+
+    /**
+     * Move the explanations of a renamed or moved job, or of the jobs within a renamed or moved folder.
+     * @param oldFullName the previous full name of the job or folder
+     * @param newFullName the new full name
+     */
+    synchronized void rename(@NonNull String oldFullName, @NonNull String newFullName) {
+        load();
+        List<Record> moved = new ArrayList<>();
+        for (Record record : records) {
+            if (record.job.equals(oldFullName) || record.job.startsWith(oldFullName + "/")) {
+                moved.add(record);
+            }
+        }
+        for (Record record : moved) {
+            String job = newFullName + record.job.substring(oldFullName.length());
+            Record renamed = new Record(job + "#" + record.build, job, record.build, record.timestamp,
+                    record.providerName, record.fingerprint, record.latencyMillis, record.reusedFrom);
+            delete(record.runId);
+            write(removedLine(record.runId));
+            put(renamed);
+            write(renamed.toJson());
+        }
+    }
+
+    private static JSONObject removedLine(String runId) {
+        JSONObject line = new JSONObject();
+        line.put("run", runId);
+        line.put("removed", true);
+        return line;
+    }
+
+    /**
+     * Keeps the explanations of renamed and moved jobs.
+     */
+    @Extension
+    public static class RenameListener extends ItemListener {
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            ExplanationStore.get().rename(oldFullName, newFullName);
+        }
+    }
+
+    /**
+     * Removes the explanations of deleted builds from the store.
+     */
+    @Extension
+    public static class DeletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            ExplanationStore.get().remove(run.getExternalizableId());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.console.AnnotatedLargeText;
+import hudson.model.Run;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.plugins.workflow.actions.ErrorAction;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.LogAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.graphanalysis.DepthFirstScanner;
+
+/**
+ * Reads only the logs of the failed steps of a Pipeline instead of the tail of the whole log.
+ * The flow graph is searched for steps with an {@link ErrorAction}, and for each of them the last lines of its own log
+ * are read, preceded by the last lines of the steps before it in the same branch as context. In parallel Pipelines
+ * this leaves out the interleaved output of the other branches, so fewer lines are needed to capture the failure.
+ */
+public final class FailedStepsLogReader {
+
+    private static final String PREFIX = FailedStepsLogReader.class.getName();
+
+    /** Maximum number of failed steps whose logs are read, the latest ones are kept. */
+    static final int MAX_STEPS = SystemProperties.getInteger(PREFIX + ".maxSteps", 5);
+    /** Number of lines of the preceding steps read as context of each failed step. */
+    static final int CONTEXT_LINES = SystemProperties.getInteger(PREFIX + ".contextLines", 10);
+
+    private FailedStepsLogReader() {
+    }
+
+    /**
+     * Read the logs of the failed steps of a Pipeline run.
+     * @param run the run
+     * @param maxLines maximum number of lines of the failed steps, shared among them
+     * @return the logs of the failed steps, each headed by the step and its stages or branches, or {@code null} if
+     *         the run is not a Pipeline or no failed step was found
+     * @throws IOException if the flow graph or a log cannot be read
+     */
+    @CheckForNull
+    public static String read(@NonNull Run<?, ?> run, int maxLines) throws IOException {
+        if (!(run instanceof FlowExecutionOwner.Executable executable)) {
+            return null;
+        }
+        FlowExecutionOwner owner = executable.asFlowExecutionOwner();
+        if (owner == null) {
+            return null;
+        }
+        FlowExecution execution = owner.get();
+        List<FlowNode> failed = new ArrayList<>(new DepthFirstScanner().filteredNodes(execution.getCurrentHeads(),
+                FailedStepsLogReader::isFailedStep));
+        if (failed.isEmpty()) {
+            return null;
+        }
+        failed.sort(Comparator.comparingLong(FailedStepsLogReader::order));
+        if (failed.size() > MAX_STEPS) {
+            failed = failed.subList(failed.size() - MAX_STEPS, failed.size());
+        }
+
+        Charset charset = run.getCharset();
+        int linesPerStep = Math.max(maxLines / failed.size(), 1);
+        StringBuilder sb = new StringBuilder();
+        for (FlowNode node : failed) {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            sb.append("--- ").append(describe(node)).append(" failed ---\n");
+            for (String line : readContext(node, charset)) {
+                sb.append(line).append('\n');
+            }
+            for (String line : readTail(node, charset, linesPerStep)) {
+                sb.append(line).append('\n');
+            }
+            ErrorAction error = node.getError();
+            if (error != null && error.getError().getMessage() != null) {
+                sb.append("ERROR: ").append(error.getError().getMessage()).append('\n');
+            }
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    /**
+     * Whether a node is a step that failed by itself. Errors of blocks are mostly propagated from the steps within
+     * and are left out.
+     */
+    private static boolean isFailedStep(FlowNode node) {
+        return !(node instanceof BlockStartNode) && !(node instanceof BlockEndNode) && node.getError() != null;
+    }
+
+    /**
+     * The last lines of the steps before a failed step, up to the start of its stage or branch. Blocks such as
+     * {@code catchError} or {@code dir} around the failed step are passed.
+     */
+    private static List<String> readContext(FlowNode failed, Charset charset) throws IOException {
+        Deque<String> context = new ArrayDeque<>();
+        FlowNode node = failed.getParents().isEmpty() ? null : failed.getParents().get(0);
+        while (node != null && !isStageOrBranch(node) && context.size() < CONTEXT_LINES) {
+            List<String> lines = readTail(node, charset, CONTEXT_LINES - context.size());
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                context.addFirst(lines.get(i));
+            }
+            if (node instanceof BlockEndNode<?> end) {
+                // skip the nested block as a whole
+                node = end.getStartNode();
+            }
+            node = node.getParents().isEmpty() ? null : node.getParents().get(0);
+        }
+        return new ArrayList<>(context);
+    }
+
+    private static boolean isStageOrBranch(FlowNode node) {
+        return node instanceof BlockStartNode && node.getPersistentAction(LabelAction.class) != null;
+    }
+
+    /**
+     * The last lines of the log of a single step, with console notes removed.
+     */
+    private static List<String> readTail(FlowNode node, Charset charset, int maxLines) throws IOException {
+        LogAction logAction = node.getPersistentAction(LogAction.class);
+        if (logAction == null || maxLines <= 0) {
+            return List.of();
+        }
+        AnnotatedLargeText<? extends FlowNode> text = logAction.getLogText();
+        long start = Math.max(0, text.length() - LogTailReader.MAX_BYTES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        text.writeLogTo(start, out);
+        String[] lines = out.toString(charset).split("\r?\n");
+        // the first line may be partial when the log was cut
+        int from = Math.max(start > 0 ? 1 : 0, lines.length - maxLines);
+        List<String> result = new ArrayList<>(lines.length - from);
+        for (int i = from; i < lines.length; i++) {
+            if (i < lines.length - 1 || !lines[i].isEmpty()) {
+                result.add(lines[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The step and the stages or branches it runs in, e.g. {@code Shell Script in Build / linux}.
+     */
+    private static String describe(FlowNode node) {
+        List<String> labels = new ArrayList<>();
+        for (BlockStartNode block : node.iterateEnclosingBlocks()) {
+            LabelAction label = block.getPersistentAction(LabelAction.class);
+            if (label != null) {
+                labels.add(0, label.getDisplayName());
+            }
+        }
+        String step = node.getDisplayFunctionName();
+        return labels.isEmpty() ? step : step + " in " + String.join(" / ", labels);
+    }
+
+    /**
+     * Order of the nodes in the run, the ids of Pipelines are increasing numbers.
+     */
+    private static long order(FlowNode node) {
+        try {
+            return Long.parseLong(node.getId());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * Computes a fingerprint of extracted error logs that is stable across builds.
+ * Parts of the log that differ between otherwise identical failures (timestamps, build numbers, hashes, temporary
+ * paths, ports and durations) are masked before hashing.
+ */
+public final class FailureFingerprint {
+
+    private static final String SOURCE_EXTENSIONS = "java|kt|kts|groovy|gradle|scala|c|cc|cpp|cxx|h|hh|hpp|cs|go|rs"
+            + "|py|rb|php|js|jsx|mjs|ts|tsx|swift|m|mm|sh|xml|json|ya?ml|properties|txt";
+
+    private static final Pattern UUID = Pattern.compile(
+            "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?(?:Z|[+-]\\d{2}:?\\d{2})?");
+    private static final Pattern TIME = Pattern.compile("\\b\\d{1,2}:\\d{2}:\\d{2}(?:[.,]\\d+)?\\b");
+    private static final Pattern HASH = Pattern.compile("\\b(?=[0-9a-fA-F]*[a-fA-F])(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{7,64}\\b");
+    private static final Pattern TEMP_PATH = Pattern.compile(
+            "(?:/tmp/|/var/folders/|[A-Za-z]:\\\\Users\\\\[^\\\\\\s]+\\\\AppData\\\\Local\\\\Temp\\\\|@tmp/)[^\\s'\":]*");
+    /**
+     * Ports after a host in a URL, {@code localhost}, an IP address or a domain name, but not line numbers after
+     * source file names such as {@code Foo.java:123}.
+     */
+    private static final Pattern PORT = Pattern.compile("((?<=://)[A-Za-z0-9.-]+|\\blocalhost|\\b\\d{1,3}(?:\\.\\d{1,3}){3}"
+            + "|\\[[0-9A-Fa-f:.]+\\]|\\b(?:[A-Za-z0-9-]+\\.)+(?!(?i:" + SOURCE_EXTENSIONS + ")\\b)[A-Za-z]{2,})"
+            + ":\\d{2,5}\\b");
+    private static final Pattern BUILD_NUMBER = Pattern.compile("(?i)(#|\\bbuild\\s|\\brun\\s)\\d+\\b");
+    private static final Pattern DURATION = Pattern.compile(
+            "\\b\\d+(?:\\.\\d+)?\\s?(?:ms|s|sec|secs|seconds|m|min|mins|minutes|h)\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("[ \\t]+");
+
+    private FailureFingerprint() {
+    }
+
+    /**
+     * Mask the variable parts of the given error logs.
+     * @param errorLogs the error logs
+     * @return the normalized error logs
+     */
+    @NonNull
+    public static String normalize(@CheckForNull String errorLogs) {
+        if (errorLogs == null) {
+            return "";
+        }
+        String text = UUID.matcher(errorLogs).replaceAll("<UUID>");
+        text = TIMESTAMP.matcher(text).replaceAll("<TIMESTAMP>");
+        text = TIME.matcher(text).replaceAll("<TIME>");
+        text = TEMP_PATH.matcher(text).replaceAll("<TMP>");
+        text = HASH.matcher(text).replaceAll("<HASH>");
+        text = PORT.matcher(text).replaceAll("$1:<PORT>");
+        text = BUILD_NUMBER.matcher(text).replaceAll("$1<N>");
+        text = DURATION.matcher(text).replaceAll("<DURATION>");
+        text = WHITESPACE.matcher(text).replaceAll(" ");
+        return text.strip();
+    }
+
+    /**
+     * Compute the fingerprint of a failure regardless of the provider that explained it.
+     * @param errorLogs the error logs
+     * @return the hex encoded SHA-256 of the normalized logs
+     */
+    @NonNull
+    public static String compute(@CheckForNull String errorLogs) {
+        return compute("", "", errorLogs);
+    }
+
+    /**
+     * Compute the fingerprint of error logs explained by the given provider and model.
+     * @param providerName the name of the provider
+     * @param model the model
+     * @param errorLogs the error logs
+     * @return the hex encoded SHA-256 of the normalized logs together with provider and model
+     */
+    @NonNull
+    public static String compute(String providerName, String model, String errorLogs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(providerName).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(errorLogs).getBytes(StandardCharsets.UTF_8));
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package io.jenkins.plugins.explain_error;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
+import hudson.Util;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.util.Secret;
 import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
 import io.jenkins.plugins.explain_error.provider.GeminiProvider;
 import io.jenkins.plugins.explain_error.provider.OllamaProvider;
 import io.jenkins.plugins.explain_error.provider.OpenAIProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest2;
 import org.jenkinsci.Symbol;
 
 
@@ -24,9 +34,33 @@ public class GlobalConfigurationImpl extends GlobalConfiguration {
     private transient String apiUrl;
     private transient String model;
     private boolean enableExplanation = true;
+    private boolean enableLogCompaction = true;
+    private boolean failedStepsOnly;
+    private boolean enableChunkedSummarization;
+    private boolean enableCache;
+    private int cacheMaxEntries = 500;
+    private int cacheTtlMinutes = 1440;
+    private boolean enableStreakReuse;
+    private boolean enableSimilarityReuse;
+    private int similarityThreshold = 90;
+    private boolean enableAutoExplanation;
+    private String autoExplanationIncludes;
+    private String autoExplanationExcludes;
+    private int maxConcurrentExplanations = 4;
+    private int maxQueuedExplanations = 20;
+    private int queueTimeoutSeconds = 120;
+    private boolean enableHedging;
+    private int hedgeDelaySeconds = 20;
 
     private BaseAIProvider aiProvider;
 
+    /**
+     * Providers asked in order when the primary {@link #aiProvider} fails.
+     */
+    private List<BaseAIProvider> fallbackProviders = new ArrayList<>();
+
+    private transient ExplanationCache explanationCache;
+
     public GlobalConfigurationImpl() {
         load();
     }
@@ -40,6 +74,9 @@ public class GlobalConfigurationImpl extends GlobalConfiguration {
     }
 
     public Object readResolve() {
+        if (fallbackProviders == null) {
+            fallbackProviders = new ArrayList<>();
+        }
         if (aiProvider == null && provider != null) {
             aiProvider = switch (provider) {
                 case OPENAI -> new OpenAIProvider(apiUrl, model, apiKey);
@@ -60,10 +97,35 @@ public class GlobalConfigurationImpl extends GlobalConfiguration {
     }
 
     public void setAiProvider(BaseAIProvider aiProvider) {
+        if (this.aiProvider != null && this.aiProvider != aiProvider) {
+            this.aiProvider.invalidateAssistant();
+        }
         this.aiProvider = aiProvider;
         save();
     }
 
+    /**
+     * Whether errors can be explained, i.e. explanation is enabled and the provider is properly configured.
+     */
+    public boolean isExplanationAvailable() {
+        if (!enableExplanation) {
+            return false;
+        }
+        BaseAIProvider primary = getAiProvider();
+        return primary != null && primary.isValid();
+    }
+
+    @NonNull
+    public List<BaseAIProvider> getFallbackProviders() {
+        return fallbackProviders != null ? Collections.unmodifiableList(fallbackProviders) : Collections.emptyList();
+    }
+
+    @DataBoundSetter
+    public void setFallbackProviders(List<BaseAIProvider> fallbackProviders) {
+        this.fallbackProviders = fallbackProviders != null ? new ArrayList<>(fallbackProviders) : new ArrayList<>();
+        save();
+    }
+
     public Secret getApiKey() {
         return apiKey;
     }
@@ -116,6 +178,249 @@ public class GlobalConfigurationImpl extends GlobalConfiguration {
         this.enableExplanation = enableExplanation;
     }
 
+    public boolean isEnableLogCompaction() {
+        return enableLogCompaction;
+    }
+
+    @DataBoundSetter
+    public void setEnableLogCompaction(boolean enableLogCompaction) {
+        this.enableLogCompaction = enableLogCompaction;
+    }
+
+    /**
+     * Whether explanations requested from the console page read only the logs of the failed steps of a Pipeline,
+     * see {@link FailedStepsLogReader}.
+     */
+    public boolean isFailedStepsOnly() {
+        return failedStepsOnly;
+    }
+
+    @DataBoundSetter
+    public void setFailedStepsOnly(boolean failedStepsOnly) {
+        this.failedStepsOnly = failedStepsOnly;
+    }
+
+    /**
+     * Whether error logs too large for the context of the model are summarized in parts before they are explained,
+     * see {@link ChunkedExplainer}.
+     */
+    public boolean isEnableChunkedSummarization() {
+        return enableChunkedSummarization;
+    }
+
+    @DataBoundSetter
+    public void setEnableChunkedSummarization(boolean enableChunkedSummarization) {
+        this.enableChunkedSummarization = enableChunkedSummarization;
+    }
+
+    public boolean isEnableCache() {
+        return enableCache;
+    }
+
+    @DataBoundSetter
+    public void setEnableCache(boolean enableCache) {
+        this.enableCache = enableCache;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    @DataBoundSetter
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = Math.max(cacheMaxEntries, 0);
+        updateCacheLimits();
+    }
+
+    public int getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+
+    @DataBoundSetter
+    public void setCacheTtlMinutes(int cacheTtlMinutes) {
+        this.cacheTtlMinutes = Math.max(cacheTtlMinutes, 0);
+        updateCacheLimits();
+    }
+
+    /**
+     * Whether a failure that repeats the one of the previous build is answered with the explanation of that build.
+     */
+    public boolean isEnableStreakReuse() {
+        return enableStreakReuse;
+    }
+
+    @DataBoundSetter
+    public void setEnableStreakReuse(boolean enableStreakReuse) {
+        this.enableStreakReuse = enableStreakReuse;
+    }
+
+    /**
+     * Whether new failures are answered with the explanation of a similar past failure, see {@link SimilarityIndex}.
+     */
+    public boolean isEnableSimilarityReuse() {
+        return enableSimilarityReuse;
+    }
+
+    @DataBoundSetter
+    public void setEnableSimilarityReuse(boolean enableSimilarityReuse) {
+        this.enableSimilarityReuse = enableSimilarityReuse;
+    }
+
+    /**
+     * Minimum similarity in percent of a past failure whose explanation is reused.
+     */
+    public int getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    @DataBoundSetter
+    public void setSimilarityThreshold(int similarityThreshold) {
+        this.similarityThreshold = Math.min(Math.max(similarityThreshold, 1), 100);
+    }
+
+    public boolean isEnableAutoExplanation() {
+        return enableAutoExplanation;
+    }
+
+    @DataBoundSetter
+    public void setEnableAutoExplanation(boolean enableAutoExplanation) {
+        this.enableAutoExplanation = enableAutoExplanation;
+    }
+
+    /**
+     * Jobs and folders whose failed builds are explained in the background, one per line, all jobs if empty.
+     */
+    public String getAutoExplanationIncludes() {
+        return autoExplanationIncludes;
+    }
+
+    @DataBoundSetter
+    public void setAutoExplanationIncludes(String autoExplanationIncludes) {
+        this.autoExplanationIncludes = Util.fixEmptyAndTrim(autoExplanationIncludes);
+    }
+
+    /**
+     * Jobs and folders whose failed builds are never explained in the background, one per line.
+     */
+    public String getAutoExplanationExcludes() {
+        return autoExplanationExcludes;
+    }
+
+    @DataBoundSetter
+    public void setAutoExplanationExcludes(String autoExplanationExcludes) {
+        this.autoExplanationExcludes = Util.fixEmptyAndTrim(autoExplanationExcludes);
+    }
+
+    public int getMaxConcurrentExplanations() {
+        return maxConcurrentExplanations;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentExplanations(int maxConcurrentExplanations) {
+        this.maxConcurrentExplanations = Math.max(maxConcurrentExplanations, 1);
+    }
+
+    public int getMaxQueuedExplanations() {
+        return maxQueuedExplanations;
+    }
+
+    @DataBoundSetter
+    public void setMaxQueuedExplanations(int maxQueuedExplanations) {
+        this.maxQueuedExplanations = Math.max(maxQueuedExplanations, 0);
+    }
+
+    public int getQueueTimeoutSeconds() {
+        return queueTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setQueueTimeoutSeconds(int queueTimeoutSeconds) {
+        this.queueTimeoutSeconds = Math.max(queueTimeoutSeconds, 0);
+    }
+
+    public boolean isEnableHedging() {
+        return enableHedging;
+    }
+
+    @DataBoundSetter
+    public void setEnableHedging(boolean enableHedging) {
+        this.enableHedging = enableHedging;
+    }
+
+    /**
+     * Get the delay after which the first fallback provider is asked as well, used until enough requests to the
+     * primary provider have been made to derive the delay from its latency.
+     */
+    public int getHedgeDelaySeconds() {
+        return hedgeDelaySeconds;
+    }
+
+    @DataBoundSetter
+    public void setHedgeDelaySeconds(int hedgeDelaySeconds) {
+        this.hedgeDelaySeconds = Math.max(hedgeDelaySeconds, 1);
+    }
+
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        if (json.optBoolean("enableExplanation")) {
+            // an empty list is not submitted, so it would not be reset
+            fallbackProviders = new ArrayList<>();
+        }
+        boolean result = super.configure(req, json);
+        warmUpProviders();
+        return result;
+    }
+
+    /**
+     * Prepare the configured providers for the next explanation, see {@link BaseAIProvider#warmUp()}.
+     */
+    public void warmUpProviders() {
+        if (!enableExplanation) {
+            return;
+        }
+        BaseAIProvider primary = getAiProvider();
+        if (primary != null) {
+            primary.warmUp();
+        }
+        for (BaseAIProvider fallback : getFallbackProviders()) {
+            fallback.warmUp();
+        }
+    }
+
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    public static void warmUpOnStart() {
+        get().warmUpProviders();
+    }
+
+    public ExplanationScheduler getScheduler() {
+        return ExplanationScheduler.get();
+    }
+
+    public CircuitBreakers getCircuitBreakers() {
+        return CircuitBreakers.get();
+    }
+
+    public RateLimiters getRateLimiters() {
+        return RateLimiters.get();
+    }
+
+    /**
+     * Get the cache of explanations shared across builds.
+     * @return the explanation cache
+     */
+    public synchronized ExplanationCache getExplanationCache() {
+        if (explanationCache == null) {
+            explanationCache = new ExplanationCache(cacheMaxEntries, TimeUnit.MINUTES.toMillis(cacheTtlMinutes));
+        }
+        return explanationCache;
+    }
+
+    private synchronized void updateCacheLimits() {
+        if (explanationCache != null) {
+            explanationCache.setLimits(cacheMaxEntries, TimeUnit.MINUTES.toMillis(cacheTtlMinutes));
+        }
+    }
+
     @Override
     public String getDisplayName() {
         return "Explain Error Plugin Configuration";
@@ -0,0 +1,158 @@
+package io.jenkins.plugins.explain_error;
+
+import hudson.util.AtomicFileWriter;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+/**
+ * Append-only file of JSON lines under {@code JENKINS_HOME} holding the changes of a store, see
+ * {@link ExplanationStore} and {@link SimilarityIndex}. It is rewritten with only the current lines once it holds
+ * mostly outdated ones.
+ * The file also records whether the store was filled from the explanations stored in all builds, see
+ * {@link ExplanationBackfill}, by a marker line written once that is complete.
+ * Callers synchronize the changes of the file.
+ */
+final class JsonLinesFile {
+
+    private static final Logger LOGGER = Logger.getLogger(JsonLinesFile.class.getName());
+
+    private static final String BACKFILLED = "backfilled";
+
+    private final String path;
+    private final String description;
+    private volatile int lines;
+
+    /**
+     * @param path the path of the file relative to {@code JENKINS_HOME}
+     * @param description what the file holds, for log messages
+     */
+    JsonLinesFile(String path, String description) {
+        this.path = path;
+        this.description = description;
+    }
+
+    File getFile() {
+        return new File(Jenkins.get().getRootDir(), path);
+    }
+
+    /**
+     * Read all lines of the file, skipping damaged ones.
+     * @param consumer receives the lines in order, may throw {@link JSONException} or
+     *                 {@link IllegalArgumentException} for a damaged line
+     * @return whether the store was filled from the builds
+     */
+    boolean read(Consumer<JSONObject> consumer) {
+        File file = getFile();
+        boolean backfilled = false;
+        int count = 0;
+        if (!file.exists()) {
+            lines = 0;
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                count++;
+                try {
+                    JSONObject line = JSONObject.fromObject(text);
+                    if (line.optBoolean(BACKFILLED)) {
+                        backfilled = true;
+                    } else {
+                        consumer.accept(line);
+                    }
+                } catch (JSONException | IllegalArgumentException e) {
+                    LOGGER.log(Level.FINE, "Skipping a damaged line of " + file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to load the " + description + " from " + file, e);
+        }
+        lines = count;
+        return backfilled;
+    }
+
+    /**
+     * Append lines to the file.
+     * @param changes the lines
+     * @return whether the lines were written
+     */
+    boolean append(List<JSONObject> changes) {
+        File file = getFile();
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (JSONObject line : changes) {
+                    writer.write(line.toString());
+                    writer.write('\n');
+                    lines++;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to update the " + description + " " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Rewrite the file with only the given lines.
+     * @param current the current lines
+     * @param backfilled whether the store was filled from the builds
+     */
+    void rewrite(Iterable<JSONObject> current, boolean backfilled) {
+        File file = getFile();
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            AtomicFileWriter writer = new AtomicFileWriter(file.toPath(), StandardCharsets.UTF_8);
+            int count = 0;
+            try {
+                if (backfilled) {
+                    writer.write(backfilledLine().toString());
+                    writer.write('\n');
+                    count++;
+                }
+                for (JSONObject line : current) {
+                    writer.write(line.toString());
+                    writer.write('\n');
+                    count++;
+                }
+                writer.commit();
+            } finally {
+                writer.abort();
+            }
+            lines = count;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to compact the " + description + " " + file, e);
+        }
+    }
+
+    /**
+     * Whether the file holds mostly outdated lines and should be rewritten.
+     * @param size the number of current lines
+     */
+    boolean isMostlyOutdated(int size) {
+        return lines > 2 * size + 100;
+    }
+
+    /**
+     * Get the line marking that the store was filled from the builds.
+     */
+    static JSONObject backfilledLine() {
+        JSONObject line = new JSONObject();
+        line.put(BACKFILLED, true);
+        return line;
+    }
+}
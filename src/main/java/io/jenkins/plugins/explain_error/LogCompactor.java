@@ -0,0 +1,190 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compacts extracted error logs before they are put into the prompt.
+ * ANSI escape sequences and timestamper prefixes are removed, runs of identical or nearly identical lines (differing
+ * only in numbers) are collapsed into one line with a repeat count, and long Java and Python stack traces are folded
+ * to their distinctive frames.
+ */
+public final class LogCompactor {
+
+    private static final Pattern ANSI = Pattern.compile("\u001B\\[[0-9;?]*[ -/]*[@-~]");
+    private static final Pattern TIMESTAMP_PREFIX = Pattern.compile(
+            "^\\[?(?:\\d{4}-\\d{2}-\\d{2}[T ])?\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?(?:Z|[+-]\\d{2}:?\\d{2})?\\]?\\s+");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern JAVA_FRAME = Pattern.compile("^\\s+at [\\w$.<>/]+\\(.*\\)\\s*$");
+    private static final Pattern PYTHON_FRAME = Pattern.compile("^\\s+File \".*\", line \\d+.*$");
+
+    /**
+     * Packages whose frames rarely explain a failure and are folded away when a trace is long.
+     */
+    private static final String[] FRAMEWORK_PACKAGES = {
+        "java.", "javax.", "jdk.", "sun.", "com.sun.", "kotlin.", "scala.", "groovy.", "org.codehaus.groovy.",
+        "org.junit.", "junit.", "org.testng.", "org.apache.maven.", "org.gradle.", "org.springframework.",
+        "org.eclipse.jetty.", "hudson.", "jenkins.", "org.jenkinsci.", "org.kohsuke.", "com.cloudbees."
+    };
+
+    /**
+     * Number of frames at the top of a trace that are always kept.
+     */
+    static final int KEPT_TOP_FRAMES = 3;
+
+    /**
+     * Traces with at most this many frames are kept as they are.
+     */
+    static final int MAX_UNFOLDED_FRAMES = 8;
+
+    private LogCompactor() {
+    }
+
+    /**
+     * Compact the given error logs.
+     * @param errorLogs the error logs
+     * @return the compacted error logs
+     */
+    @NonNull
+    public static String compact(@NonNull String errorLogs) {
+        String[] lines = errorLogs.split("\n", -1);
+        List<String> cleaned = new ArrayList<>(lines.length);
+        for (String line : lines) {
+            cleaned.add(clean(line));
+        }
+        List<String> folded = foldStackTraces(cleaned);
+        return collapseRepeats(folded);
+    }
+
+    private static String clean(String line) {
+        String result = ANSI.matcher(line).replaceAll("");
+        result = TIMESTAMP_PREFIX.matcher(result).replaceFirst("");
+        return result.stripTrailing();
+    }
+
+    private static List<String> foldStackTraces(List<String> lines) {
+        List<String> result = new ArrayList<>(lines.size());
+        int i = 0;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            if (JAVA_FRAME.matcher(line).matches()) {
+                int end = i;
+                while (end < lines.size() && JAVA_FRAME.matcher(lines.get(end)).matches()) {
+                    end++;
+                }
+                foldJavaFrames(lines.subList(i, end), result);
+                i = end;
+            } else if (PYTHON_FRAME.matcher(line).matches()) {
+                int end = i;
+                List<List<String>> frames = new ArrayList<>();
+                while (end < lines.size() && PYTHON_FRAME.matcher(lines.get(end)).matches()) {
+                    List<String> frame = new ArrayList<>(2);
+                    frame.add(lines.get(end++));
+                    // the source line belonging to the frame
+                    if (end < lines.size() && lines.get(end).startsWith("    ")
+                            && !PYTHON_FRAME.matcher(lines.get(end)).matches()) {
+                        frame.add(lines.get(end++));
+                    }
+                    frames.add(frame);
+                }
+                foldPythonFrames(frames, result);
+                i = end;
+            } else {
+                result.add(line);
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static void foldJavaFrames(List<String> frames, List<String> result) {
+        if (frames.size() <= MAX_UNFOLDED_FRAMES) {
+            result.addAll(frames);
+            return;
+        }
+        int omitted = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            String frame = frames.get(i);
+            if (i < KEPT_TOP_FRAMES || !isFrameworkFrame(frame)) {
+                if (omitted > 0) {
+                    result.add("\t... " + omitted + " framework frames omitted");
+                    omitted = 0;
+                }
+                result.add(frame);
+            } else {
+                omitted++;
+            }
+        }
+        if (omitted > 0) {
+            result.add("\t... " + omitted + " framework frames omitted");
+        }
+    }
+
+    private static void foldPythonFrames(List<List<String>> frames, List<String> result) {
+        if (frames.size() <= MAX_UNFOLDED_FRAMES) {
+            frames.forEach(result::addAll);
+            return;
+        }
+        // the innermost frames are at the end of a Python traceback
+        int keptBottom = KEPT_TOP_FRAMES + 1;
+        frames.get(0).forEach(result::add);
+        result.add("  ... " + (frames.size() - 1 - keptBottom) + " frames omitted");
+        for (List<String> frame : frames.subList(frames.size() - keptBottom, frames.size())) {
+            result.addAll(frame);
+        }
+    }
+
+    private static boolean isFrameworkFrame(String frame) {
+        String location = frame.strip().substring("at ".length());
+        for (String prefix : FRAMEWORK_PACKAGES) {
+            if (location.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String collapseRepeats(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            String shape = NUMBER.matcher(line).replaceAll("#");
+            int end = i + 1;
+            boolean identical = true;
+            while (end < lines.size()) {
+                String next = lines.get(end);
+                if (next.equals(line)) {
+                    end++;
+                } else if (NUMBER.matcher(next).replaceAll("#").equals(shape)) {
+                    identical = false;
+                    end++;
+                } else {
+                    break;
+                }
+            }
+            int repeats = end - i - 1;
+            sb.append(line).append('\n');
+            // runs of empty lines become a single one
+            if (repeats == 1 && !line.isEmpty()) {
+                sb.append(lines.get(i + 1)).append('\n');
+            } else if (repeats > 1 && !line.isEmpty()) {
+                if (identical) {
+                    sb.append("[... ").append(repeats).append(" identical lines omitted ...]\n");
+                } else {
+                    // the last line of a progress sequence is usually the interesting one
+                    sb.append("[... ").append(repeats - 1).append(repeats == 2 ? " similar line" : " similar lines")
+                            .append(" omitted ...]\n");
+                    sb.append(lines.get(end - 1)).append('\n');
+                }
+            }
+            i = end;
+        }
+        if (!sb.isEmpty()) {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package io.jenkins.plugins.explain_error;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedding model for error logs that runs in process on the CPU, without a neural network.
+ * The logs are normalized like for the {@link FailureFingerprint}, split into words, and the words and pairs of
+ * adjacent words are hashed into a fixed number of dimensions. Numbers such as versions, line numbers or counts are
+ * not words, so failures that differ only in them get nearly the same vector.
+ */
+public class LogEmbeddingModel implements EmbeddingModel {
+
+    /**
+     * Identifies the vectors of this model, to be changed whenever the vectors change.
+     */
+    static final String NAME = "log-hashing-v1";
+    static final int DIMENSIONS = 256;
+
+    private static final Pattern WORD = Pattern.compile("[A-Za-z][A-Za-z0-9_]+");
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        for (TextSegment segment : textSegments) {
+            float[] vector = vector(segment.text());
+            embeddings.add(Embedding.from(vector != null ? vector : new float[DIMENSIONS]));
+        }
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return DIMENSIONS;
+    }
+
+    /**
+     * Compute the vector of error logs.
+     * @param errorLogs the error logs
+     * @return the vector of unit length, or {@code null} if the logs contain no words
+     */
+    @CheckForNull
+    static float[] vector(@NonNull String errorLogs) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String line : FailureFingerprint.normalize(errorLogs).split("\n")) {
+            Matcher matcher = WORD.matcher(line);
+            String previous = null;
+            while (matcher.find()) {
+                String word = matcher.group().toLowerCase(Locale.ROOT);
+                counts.merge(word, 1, Integer::sum);
+                if (previous != null) {
+                    counts.merge(previous + ' ' + word, 1, Integer::sum);
+                }
+                previous = word;
+            }
+        }
+        if (counts.isEmpty()) {
+            return null;
+        }
+
+        float[] vector = new float[DIMENSIONS];
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int hash = mix(entry.getKey().hashCode());
+            // repeated words count less than distinct ones
+            float weight = (float) (1 + Math.log(entry.getValue()));
+            vector[(hash >>> 1) % DIMENSIONS] += (hash & 1) == 0 ? weight : -weight;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+
+    /**
+     * Cosine similarity of two vectors of unit length.
+     */
+    static double similarity(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Spread the bits of a string hash code, which is the same on every JVM.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
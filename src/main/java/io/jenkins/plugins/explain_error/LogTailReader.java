@@ -0,0 +1,234 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.console.AnnotatedLargeText;
+import hudson.console.ConsoleNote;
+import hudson.model.Run;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import jenkins.util.SystemProperties;
+import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
+
+/**
+ * Reads the last lines of a build log without materializing the whole log.
+ * Plain log files are read backwards from the end in fixed-size blocks until either the line budget or the byte
+ * budget is reached, so only the tail blocks of even very large logs are touched. Compressed logs cannot be seeked
+ * and are streamed once, keeping only the last lines in memory. The logs of Pipelines may be kept by a pluggable log
+ * storage, so only their end is requested through the log text of the run.
+ */
+public final class LogTailReader {
+
+    static final int BLOCK_SIZE = 8192;
+
+    /**
+     * Upper bound of bytes read from the end of a log, regardless of the number of lines requested.
+     */
+    static final int MAX_BYTES = SystemProperties.getInteger(LogTailReader.class.getName() + ".maxBytes", 1024 * 1024);
+
+    private LogTailReader() {
+    }
+
+    /**
+     * Read the last lines of the log of a run, with console notes removed.
+     * @param run the run
+     * @param maxLines maximum number of lines to return
+     * @return the lines joined with newlines
+     * @throws IOException if the log cannot be read
+     */
+    @NonNull
+    public static String readTail(@NonNull Run<?, ?> run, int maxLines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        forEachTailLine(run, maxLines, line -> sb.append(line).append('\n'));
+        if (!sb.isEmpty()) {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pass each of the last lines of the log of a run, with console notes removed, to the given consumer in order.
+     * @param run the run
+     * @param maxLines maximum number of lines
+     * @param consumer receives the lines
+     * @throws IOException if the log cannot be read
+     */
+    public static void forEachTailLine(@NonNull Run<?, ?> run, int maxLines, @NonNull Consumer<String> consumer)
+            throws IOException {
+        if (run instanceof FlowExecutionOwner.Executable) {
+            // the log file of a Pipeline is deprecated and may copy the whole log out of the log storage
+            forEachTailLine(run.getLogText(), run.getCharset(), maxLines, MAX_BYTES, consumer);
+            return;
+        }
+        File logFile = run.getLogFile();
+        if (!logFile.isFile()) {
+            // log is kept by some other storage, fall back to the core implementation
+            List<String> lines = run.getLog(maxLines);
+            lines.forEach(consumer);
+            return;
+        }
+        forEachTailLine(logFile, run.getCharset(), maxLines, MAX_BYTES, consumer);
+    }
+
+    static void forEachTailLine(File logFile, Charset charset, int maxLines, int maxBytes, Consumer<String> consumer)
+            throws IOException {
+        if (maxLines <= 0 || maxBytes <= 0) {
+            return;
+        }
+        if (logFile.getName().endsWith(".gz")) {
+            readCompressedTail(logFile, charset, maxLines, maxBytes, consumer);
+            return;
+        }
+        byte[] tail = readTailBytes(logFile, maxLines, maxBytes);
+        String text = new String(tail, charset);
+        int start = 0;
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) == '\n') {
+            length--;
+        }
+        while (start <= length && length > 0) {
+            int end = text.indexOf('\n', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            consumer.accept(cleanLine(text.substring(start, end)));
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Pass the last lines of a log text to the consumer, requesting only the last {@code maxBytes} bytes of it.
+     */
+    static void forEachTailLine(AnnotatedLargeText<?> text, Charset charset, int maxLines, int maxBytes,
+                                Consumer<String> consumer) throws IOException {
+        if (maxLines <= 0 || maxBytes <= 0) {
+            return;
+        }
+        long start = Math.max(0, text.length() - maxBytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        text.writeRawLogTo(start, out);
+        String[] lines = out.toString(charset).split("\n");
+        // the first line may be partial when the log was cut, it is only kept if no full line follows
+        int from = Math.max(start > 0 && lines.length > 1 ? 1 : 0, lines.length - maxLines);
+        for (int i = from; i < lines.length; i++) {
+            consumer.accept(cleanLine(lines[i]));
+        }
+    }
+
+    /**
+     * Read the bytes making up the last {@code maxLines} lines of a plain file, scanning backwards from the end.
+     * If the byte budget is exhausted first, the result starts at the first complete line within the budget, or within
+     * the last line if that alone exceeds the budget.
+     */
+    private static byte[] readTailBytes(File logFile, int maxLines, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long limit = Math.max(0, size - maxBytes);
+            long start = -1;
+            long position = size;
+            int newlines = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            scan:
+            while (position > limit) {
+                int length = (int) Math.min(BLOCK_SIZE, position - limit);
+                position -= length;
+                buffer.clear().limit(length);
+                readFully(channel, buffer, position);
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        long offset = position + i;
+                        if (offset == size - 1) {
+                            // terminator of the last line
+                            continue;
+                        }
+                        if (++newlines == maxLines) {
+                            start = offset + 1;
+                            break scan;
+                        }
+                    }
+                }
+            }
+            if (start < 0) {
+                start = limit;
+                if (limit > 0) {
+                    long next = skipPartialLine(channel, buffer, limit - 1, size);
+                    // a last line longer than the budget is kept truncated rather than dropped
+                    if (next < size) {
+                        start = next;
+                    }
+                }
+            }
+            ByteBuffer result = ByteBuffer.allocate((int) (size - start));
+            readFully(channel, result, start);
+            return result.array();
+        }
+    }
+
+    private static long skipPartialLine(FileChannel channel, ByteBuffer buffer, long from, long size)
+            throws IOException {
+        long position = from;
+        while (position < size) {
+            int length = (int) Math.min(BLOCK_SIZE, size - position);
+            buffer.clear().limit(length);
+            readFully(channel, buffer, position);
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+    }
+
+    private static void readCompressedTail(File logFile, Charset charset, int maxLines, int maxBytes,
+                                           Consumer<String> consumer) throws IOException {
+        Deque<String> lines = new ArrayDeque<>(Math.min(maxLines, 1024) + 1);
+        long bytes = 0;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(logFile.toPath()));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.addLast(line);
+                bytes += line.length() + 1;
+                while (lines.size() > maxLines || (bytes > maxBytes && lines.size() > 1)) {
+                    bytes -= lines.removeFirst().length() + 1;
+                }
+            }
+        }
+        for (String line : lines) {
+            consumer.accept(cleanLine(line));
+        }
+    }
+
+    private static String cleanLine(String line) {
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line = line.substring(0, line.length() - 1);
+        }
+        return ConsoleNote.removeNotes(line);
+    }
+}
@@ -0,0 +1,26 @@
+package io.jenkins.plugins.explain_error;
+
+import java.util.concurrent.TimeUnit;
+import jenkins.metrics.api.Metrics;
+
+/**
+ * Records values in the registry of the metrics plugin.
+ * Only loaded by {@link ExplanationMetrics} when the optional plugin is installed.
+ */
+final class MetricsPluginRecorder {
+
+    private MetricsPluginRecorder() {
+    }
+
+    static void time(String name, long millis) {
+        Metrics.metricRegistry().timer(name).update(millis, TimeUnit.MILLISECONDS);
+    }
+
+    static void update(String name, long value) {
+        Metrics.metricRegistry().histogram(name).update(value);
+    }
+
+    static void increment(String name) {
+        Metrics.metricRegistry().counter(name).inc();
+    }
+}
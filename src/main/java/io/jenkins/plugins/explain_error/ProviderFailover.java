@@ -0,0 +1,273 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import jenkins.util.Timer;
+
+/**
+ * Asks the configured providers in order until one of them answers.
+ * With hedging, the first fallback provider is asked as well when the primary provider has not started to answer
+ * within the hedge delay. The first answer wins and the other request is cancelled.
+ * The primary provider is asked on the calling thread, the hedged request runs on the executor of
+ * {@link ExplanationJobs} and is not sent when that is busy.
+ * Once parts of an answer have been passed to the token consumer, no other provider is asked, as the parts cannot be
+ * taken back.
+ */
+final class ProviderFailover {
+
+    private ProviderFailover() {
+    }
+
+    /**
+     * A request to a single provider.
+     */
+    @FunctionalInterface
+    interface Call {
+        String explain(BaseAIProvider provider, @CheckForNull Consumer<String> tokenConsumer) throws ExplanationException;
+    }
+
+    /**
+     * An explanation and the provider that gave it.
+     */
+    static final class Answer {
+        final String explanation;
+        final String providerName;
+        /**
+         * Externalizable id of the run whose explanation of a similar failure was reused, or {@code null}.
+         */
+        @CheckForNull
+        final String reusedFrom;
+
+        Answer(String explanation, String providerName) {
+            this(explanation, providerName, null);
+        }
+
+        Answer(String explanation, String providerName, @CheckForNull String reusedFrom) {
+            this.explanation = explanation;
+            this.providerName = providerName;
+            this.reusedFrom = reusedFrom;
+        }
+    }
+
+    /**
+     * Ask the providers in order until one answers.
+     * @param providers the providers, the primary first
+     * @param hedgeDelayMillis delay after which the first fallback provider is asked as well, or 0 to disable hedging
+     * @param listener receives notes about failover and hedging
+     * @param tokenConsumer receives the parts of the answer as they arrive, may be {@code null}
+     * @param call the request to a single provider
+     * @return the first answer
+     * @throws ExplanationException the failure of the last provider asked
+     */
+    @NonNull
+    static Answer explain(@NonNull List<BaseAIProvider> providers, long hedgeDelayMillis, @NonNull TaskListener listener,
+                          @CheckForNull Consumer<String> tokenConsumer, @NonNull Call call) throws ExplanationException {
+        TokenGate gate = new TokenGate(tokenConsumer);
+        ExplanationException lastError = null;
+        int next = 0;
+        if (hedgeDelayMillis > 0 && providers.size() > 1) {
+            try {
+                return hedged(providers.get(0), providers.get(1), hedgeDelayMillis, listener, gate, call);
+            } catch (HedgeException e) {
+                lastError = e.error;
+                next = e.tried;
+            }
+            if (gate.isClaimed()) {
+                throw lastError;
+            }
+        }
+        for (int i = next; i < providers.size(); i++) {
+            BaseAIProvider provider = providers.get(i);
+            if (lastError != null) {
+                listener.getLogger().println("Asking the fallback provider " + provider.getProviderName() + " after: "
+                        + lastError.getMessage());
+            }
+            try {
+                return new Answer(call.explain(provider, gate.consumer(i)), provider.getProviderName());
+            } catch (ExplanationException e) {
+                lastError = e;
+                if (gate.isClaimed()) {
+                    throw e;
+                }
+            }
+        }
+        if (lastError == null) {
+            throw new ExplanationException("error", "No AI provider is configured.");
+        }
+        throw lastError;
+    }
+
+    private static Answer hedged(BaseAIProvider primary, BaseAIProvider secondary, long delayMillis,
+                                 TaskListener listener, TokenGate gate, Call call) throws HedgeException {
+        CompletableFuture<Answer> first = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        AtomicBoolean hedging = new AtomicBoolean();
+        Attempt primaryAttempt = new Attempt(0, primary, gate, call, first, running);
+        Attempt secondaryAttempt = new Attempt(1, secondary, gate, call, first, running);
+        // the primary request is cancelled as soon as the hedged request has answered
+        first.whenComplete((answer, error) -> primaryAttempt.cancel());
+        ScheduledFuture<?> hedge = Timer.get().schedule(() -> {
+            if (first.isDone() || gate.isClaimed()) {
+                return;
+            }
+            running.incrementAndGet();
+            hedging.set(true);
+            try {
+                ExplanationJobs.get().getExecutor().execute(secondaryAttempt::run);
+                listener.getLogger().println("No answer from " + primary.getProviderName() + " after "
+                        + delayMillis + " ms, asking " + secondary.getProviderName() + " as well.");
+            } catch (RejectedExecutionException e) {
+                hedging.set(false);
+                running.decrementAndGet();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        try {
+            primaryAttempt.run();
+            return first.get();
+        } catch (ExecutionException e) {
+            ExplanationException error = e.getCause() instanceof ExplanationException explanationException
+                    ? explanationException
+                    : new ExplanationException("error", "Explanation failed: " + e.getCause(), e.getCause());
+            throw new HedgeException(error, hedging.get() ? 2 : 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HedgeException(new ExplanationException("error", "API request was interrupted.", e),
+                    Integer.MAX_VALUE);
+        } finally {
+            hedge.cancel(false);
+            secondaryAttempt.cancel();
+        }
+    }
+
+    /**
+     * One of the hedged requests.
+     */
+    private static final class Attempt {
+        private final int index;
+        private final BaseAIProvider provider;
+        private final TokenGate gate;
+        private final Call call;
+        private final CompletableFuture<Answer> first;
+        private final AtomicInteger running;
+        /**
+         * The thread sending the request while it is running.
+         */
+        private Thread thread;
+        private boolean cancelled;
+
+        Attempt(int index, BaseAIProvider provider, TokenGate gate, Call call, CompletableFuture<Answer> first,
+                AtomicInteger running) {
+            this.index = index;
+            this.provider = provider;
+            this.gate = gate;
+            this.call = call;
+            this.first = first;
+            this.running = running;
+        }
+
+        void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    running.decrementAndGet();
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                String explanation = call.explain(provider, gate.consumer(index));
+                // an answer only counts if no other request has started to pass its answer on
+                if (gate.tryClaim(index)) {
+                    first.complete(new Answer(explanation, provider.getProviderName()));
+                    return;
+                }
+            } catch (ExplanationException | RuntimeException e) {
+                if (gate.isClaimedBy(index) || running.get() == 1) {
+                    first.completeExceptionally(e);
+                    return;
+                }
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    if (cancelled) {
+                        // the interrupt was only meant for the request, not for the thread that sent it
+                        Thread.interrupted();
+                    }
+                }
+            }
+            if (running.decrementAndGet() == 0) {
+                first.completeExceptionally(new ExplanationException("error", "No provider answered."));
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Passes the parts of the answer of only one request on to the token consumer.
+     */
+    private static final class TokenGate {
+        private final Consumer<String> tokenConsumer;
+        private final AtomicReference<Integer> owner = new AtomicReference<>();
+
+        TokenGate(@CheckForNull Consumer<String> tokenConsumer) {
+            this.tokenConsumer = tokenConsumer;
+        }
+
+        @CheckForNull
+        Consumer<String> consumer(int index) {
+            if (tokenConsumer == null) {
+                return null;
+            }
+            return token -> {
+                if (tryClaim(index)) {
+                    tokenConsumer.accept(token);
+                }
+            };
+        }
+
+        boolean tryClaim(int index) {
+            Integer current = owner.compareAndExchange(null, index);
+            return current == null || current == index;
+        }
+
+        boolean isClaimed() {
+            return tokenConsumer != null && owner.get() != null;
+        }
+
+        boolean isClaimedBy(int index) {
+            Integer current = owner.get();
+            return current != null && current == index;
+        }
+    }
+
+    /**
+     * Failure of the hedged requests, with the number of providers that have been asked.
+     */
+    private static final class HedgeException extends Exception {
+        private final transient ExplanationException error;
+        private final int tried;
+
+        HedgeException(ExplanationException error, int tried) {
+            super(error);
+            this.error = error;
+            this.tried = tried;
+        }
+    }
+}
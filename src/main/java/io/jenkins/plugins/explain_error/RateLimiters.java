@@ -0,0 +1,247 @@
+package io.jenkins.plugins.explain_error;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.RateLimitException;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the requests to each AI provider within the requests and tokens per minute configured for the provider.
+ * Explanations exceeding the budget wait instead of failing. When a provider answers that its rate limit was reached,
+ * further requests are held back for the time it asks for.
+ */
+@Extension
+public class RateLimiters {
+
+    /**
+     * How long requests are held back after a rate limit error without a hint how long to wait.
+     */
+    static final long DEFAULT_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    /**
+     * Hints in rate limit errors, e.g. "Please try again in 20s", "Please retry after 20 seconds" or
+     * {@code "retryDelay": "41s"}.
+     */
+    private static final Pattern RETRY_HINT = Pattern.compile(
+            "(?:try again in|retry after|retry in|retryDelay\"?\\s*:\\s*\")\\s*(\\d+(?:\\.\\d+)?)\\s*(ms|s|sec|seconds?|m|min|minutes?)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public static RateLimiters get() {
+        return ExtensionList.lookupSingleton(RateLimiters.class);
+    }
+
+    /**
+     * Get the rate limiter of a provider, with the budget currently configured for it.
+     * @param provider the provider
+     * @return the rate limiter
+     */
+    @NonNull
+    public RateLimiter forProvider(@NonNull BaseAIProvider provider) {
+        RateLimiter limiter = limiters.computeIfAbsent(ExplanationScheduler.getKey(provider), RateLimiter::new);
+        limiter.setLimits(provider.getRequestsPerMinute(), provider.getTokensPerMinute());
+        return limiter;
+    }
+
+    /**
+     * Get the rate limiters of all providers that have been called.
+     * @return the rate limiters
+     */
+    @NonNull
+    public List<RateLimiter> getLimiters() {
+        return new ArrayList<>(limiters.values());
+    }
+
+    /**
+     * Check whether a failure was caused by the rate limit of the provider.
+     * @param failure the failure
+     * @return how long to wait before the next request, or -1 if the failure was not caused by a rate limit
+     */
+    static long getRetryAfterMillis(Throwable failure) {
+        boolean rateLimited = false;
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof RateLimitException
+                    || t instanceof HttpException httpException && httpException.statusCode() == 429) {
+                rateLimited = true;
+                break;
+            }
+        }
+        if (!rateLimited) {
+            return -1;
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            long millis = parseRetryHint(t.getMessage());
+            if (millis >= 0) {
+                return millis;
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
+    static long parseRetryHint(String message) {
+        if (message == null) {
+            return -1;
+        }
+        Matcher matcher = RETRY_HINT.matcher(message);
+        if (!matcher.find()) {
+            return -1;
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2) != null ? matcher.group(2).toLowerCase() : "s";
+        if (unit.equals("ms")) {
+            return (long) Math.ceil(value);
+        }
+        if (unit.startsWith("m")) {
+            return (long) Math.ceil(value * 60_000);
+        }
+        return (long) Math.ceil(value * 1000);
+    }
+
+    /**
+     * The budget of one provider, a token bucket for requests and one for tokens, each refilled continuously over a
+     * minute.
+     */
+    public static final class RateLimiter {
+        private final String name;
+        private final Bucket requests = new Bucket();
+        private final Bucket tokens = new Bucket();
+        private long blockedUntil;
+        private long throttled;
+        private long rateLimitErrors;
+
+        RateLimiter(String name) {
+            this.name = name;
+        }
+
+        synchronized void setLimits(int requestsPerMinute, int tokensPerMinute) {
+            long now = System.currentTimeMillis();
+            requests.setCapacity(requestsPerMinute, now);
+            tokens.setCapacity(tokensPerMinute, now);
+        }
+
+        /**
+         * Wait until the budget allows a request.
+         * @param estimatedTokens estimated tokens of the request
+         * @param deadline the latest time to wait for, see {@link System#currentTimeMillis()}
+         * @param listener receives a note when the request has to wait
+         * @throws ExplanationException if the budget does not allow the request before the deadline
+         */
+        public void acquire(int estimatedTokens, long deadline, @NonNull TaskListener listener) throws ExplanationException {
+            boolean announced = false;
+            while (true) {
+                long now = System.currentTimeMillis();
+                long wait;
+                synchronized (this) {
+                    wait = Math.max(blockedUntil - now,
+                            Math.max(requests.waitMillis(1, now), tokens.waitMillis(estimatedTokens, now)));
+                    if (wait <= 0) {
+                        requests.take(1);
+                        tokens.take(estimatedTokens);
+                        return;
+                    }
+                    if (!announced) {
+                        throttled++;
+                    }
+                }
+                if (now + wait > deadline) {
+                    throw new ExplanationException("warning", "The rate limit of " + name + " does not allow another"
+                            + " request within the maximum wait. The explanation was skipped, please try again later.");
+                }
+                if (!announced) {
+                    listener.getLogger().println("Waiting " + TimeUnit.MILLISECONDS.toSeconds(wait + 999)
+                            + " seconds for the rate limit of " + name + ".");
+                    announced = true;
+                }
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExplanationException("error", "Interrupted while waiting for the rate limit of " + name + ".", e);
+                }
+            }
+        }
+
+        /**
+         * Hold back all requests after the provider answered that its rate limit was reached.
+         * @param millis how long to hold back requests
+         */
+        public synchronized void backOff(long millis) {
+            rateLimitErrors++;
+            blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + millis);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of requests that had to wait for the budget
+         */
+        public synchronized long getThrottled() {
+            return throttled;
+        }
+
+        /**
+         * @return number of rate limit errors returned by the provider
+         */
+        public synchronized long getRateLimitErrors() {
+            return rateLimitErrors;
+        }
+    }
+
+    /**
+     * A token bucket refilled with its capacity per minute.
+     */
+    static final class Bucket {
+        private int capacity;
+        private double available;
+        private long lastRefill;
+
+        void setCapacity(int perMinute, long now) {
+            if (perMinute == capacity) {
+                return;
+            }
+            refill(now);
+            // a new budget starts full
+            available = capacity <= 0 ? perMinute : Math.min(available, perMinute);
+            capacity = perMinute;
+        }
+
+        /**
+         * @return how long to wait until the given amount is available, 0 if there is no limit
+         */
+        long waitMillis(int amount, long now) {
+            if (capacity <= 0) {
+                return 0;
+            }
+            refill(now);
+            // a request larger than the whole budget waits for a full bucket
+            double needed = Math.min(amount, capacity) - available;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed * 60_000 / capacity);
+        }
+
+        void take(int amount) {
+            if (capacity > 0) {
+                available -= Math.min(amount, capacity);
+            }
+        }
+
+        private void refill(long now) {
+            if (lastRefill > 0 && capacity > 0) {
+                available = Math.min(capacity, available + (now - lastRefill) * (double) capacity / 60_000);
+            }
+            lastRefill = now;
+        }
+    }
+}
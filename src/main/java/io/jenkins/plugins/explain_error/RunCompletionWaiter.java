@@ -0,0 +1,61 @@
+package io.jenkins.plugins.explain_error;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets requests wait for a running build to complete without polling, see
+ * {@link ConsoleExplainErrorAction#doStatus}.
+ */
+@Extension
+public class RunCompletionWaiter extends RunListener<Run<?, ?>> {
+
+    private final Map<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    public static RunCompletionWaiter get() {
+        return ExtensionList.lookupSingleton(RunCompletionWaiter.class);
+    }
+
+    /**
+     * Get a future completed once the given run is no longer building.
+     * @param run the run
+     * @return the future, already completed if the run is not building
+     */
+    @NonNull
+    public CompletableFuture<Void> getCompletion(@NonNull Run<?, ?> run) {
+        if (!run.isBuilding()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String id = run.getExternalizableId();
+        CompletableFuture<Void> completion = waiters.computeIfAbsent(id, k -> new CompletableFuture<>());
+        // the run may have completed before the waiter was registered
+        if (!run.isBuilding()) {
+            release(id);
+        }
+        return completion.copy();
+    }
+
+    @Override
+    public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+        release(run.getExternalizableId());
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+        release(run.getExternalizableId());
+    }
+
+    private void release(String id) {
+        CompletableFuture<Void> completion = waiters.remove(id);
+        if (completion != null) {
+            completion.complete(null);
+        }
+    }
+}
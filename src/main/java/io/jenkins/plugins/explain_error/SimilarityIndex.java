@@ -0,0 +1,327 @@
+package io.jenkins.plugins.explain_error;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.security.SecurityRealm;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Index of the error logs of past explanations by their vector, see {@link LogEmbeddingModel}, to answer a new
+ * failure with the explanation of the most similar past failure.
+ * The index is kept in memory and persisted as an append-only file under {@code JENKINS_HOME}, see
+ * {@link JsonLinesFile}. The index is filled from the explanations stored in all builds once, see
+ * {@link ExplanationBackfill}.
+ */
+@Extension
+public class SimilarityIndex {
+
+    /**
+     * Maximum number of explanations in the index, the oldest ones are dropped.
+     */
+    static final int MAX_ENTRIES = SystemProperties.getInteger(SimilarityIndex.class.getName() + ".maxEntries", 5000);
+
+    static final String FILE = "explain-error/similarity-index.jsonl";
+
+    /**
+     * Number of best matches checked for a run that still holds its explanation.
+     */
+    private static final int CANDIDATES = 3;
+
+    /**
+     * A logged in user with no permissions beyond those of all logged in users.
+     */
+    private static final Authentication ANY_USER = new UsernamePasswordAuthenticationToken(
+            SimilarityIndex.class.getName(), "", Set.of(SecurityRealm.AUTHENTICATED_AUTHORITY2));
+
+    private final EmbeddingModel model = new LogEmbeddingModel();
+
+    /**
+     * Vectors by the externalizable id of the run holding the explanation, oldest first.
+     */
+    private final Map<String, float[]> entries = new LinkedHashMap<>();
+    private boolean loaded;
+    private boolean backfilled;
+    private final JsonLinesFile log = new JsonLinesFile(FILE, "similarity index");
+
+    public static SimilarityIndex get() {
+        return ExtensionList.lookupSingleton(SimilarityIndex.class);
+    }
+
+    /**
+     * A past explanation similar to a new failure.
+     */
+    public static final class Match {
+        private final String runId;
+        private final double similarity;
+        private final ErrorExplanationAction action;
+
+        Match(String runId, double similarity, ErrorExplanationAction action) {
+            this.runId = runId;
+            this.similarity = similarity;
+            this.action = action;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        /**
+         * @return the cosine similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public ErrorExplanationAction getAction() {
+            return action;
+        }
+    }
+
+    /**
+     * Find the past explanation of the failure most similar to the given error logs. The explanation is shown with the
+     * new failure to everyone who may read it, whoever asked for it, so only explanations of runs that all of them may
+     * read are returned, see {@link #isReadableByReadersOf}.
+     * @param errorLogs the error logs of the new failure
+     * @param threshold minimum similarity between 0 and 1
+     * @param target the run of the new failure, whose own explanation is not a match
+     * @return the most similar explanation above the threshold, or {@code null} if there is none
+     */
+    @CheckForNull
+    public Match findSimilar(@NonNull String errorLogs, double threshold, @NonNull Run<?, ?> target) {
+        float[] vector = embed(errorLogs);
+        if (vector == null) {
+            return null;
+        }
+        String excludedRunId = target.getExternalizableId();
+        List<String> runIds = new ArrayList<>();
+        List<Double> similarities = new ArrayList<>();
+        synchronized (this) {
+            load();
+            for (Map.Entry<String, float[]> entry : entries.entrySet()) {
+                double similarity = LogEmbeddingModel.similarity(vector, entry.getValue());
+                if (similarity < threshold || entry.getKey().equals(excludedRunId)) {
+                    continue;
+                }
+                int position = 0;
+                while (position < similarities.size() && similarities.get(position) >= similarity) {
+                    position++;
+                }
+                if (position < CANDIDATES) {
+                    runIds.add(position, entry.getKey());
+                    similarities.add(position, similarity);
+                    if (runIds.size() > CANDIDATES) {
+                        runIds.remove(CANDIDATES);
+                        similarities.remove(CANDIDATES);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < runIds.size(); i++) {
+            Run<?, ?> run;
+            // looked up as SYSTEM, so that a run the current user cannot see is not taken for a deleted one
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                run = Run.fromExternalizableId(runIds.get(i));
+            }
+            if (run != null && !isReadableByReadersOf(run.getParent(), target.getParent())) {
+                continue;
+            }
+            ErrorExplanationAction action = run != null ? run.getAction(ErrorExplanationAction.class) : null;
+            if (action != null && action.hasValidExplanation()) {
+                return new Match(runIds.get(i), similarities.get(i), action);
+            }
+            // the run or its explanation was deleted
+            remove(runIds.get(i));
+        }
+        return null;
+    }
+
+    /**
+     * Whether everyone who may read the target job may read the source job as well. Beyond the same job this is only
+     * known when anonymous users may read the source, or when any logged in user may read it and anonymous users may
+     * not read the target.
+     * @param source the job whose explanation would be reused
+     * @param target the job the explanation would be shown with
+     * @return whether the explanation of the source may be shown with the target
+     */
+    static boolean isReadableByReadersOf(@NonNull Job<?, ?> source, @NonNull Job<?, ?> target) {
+        if (source == target) {
+            return true;
+        }
+        Authentication readers = target.hasPermission2(Jenkins.ANONYMOUS2, Item.READ) ? Jenkins.ANONYMOUS2 : ANY_USER;
+        return source.hasPermission2(readers, Item.READ);
+    }
+
+    /**
+     * Add or replace the explanation of a run.
+     * @param runId the externalizable id of the run holding the explanation
+     * @param errorLogs the error logs that were explained
+     */
+    public void add(@NonNull String runId, @NonNull String errorLogs) {
+        float[] vector = embed(errorLogs);
+        if (vector == null) {
+            return;
+        }
+        synchronized (this) {
+            load();
+            entries.remove(runId);
+            entries.put(runId, vector);
+            append(toJson(runId, vector));
+            evict();
+        }
+    }
+
+    /**
+     * Remove the explanation of a run.
+     * @param runId the externalizable id of the run
+     */
+    public synchronized void remove(@NonNull String runId) {
+        if (!loaded || entries.remove(runId) == null) {
+            return;
+        }
+        JSONObject line = new JSONObject();
+        line.put("run", runId);
+        line.put("removed", true);
+        append(line);
+    }
+
+    public synchronized int getSize() {
+        load();
+        return entries.size();
+    }
+
+    @CheckForNull
+    private float[] embed(String errorLogs) {
+        if (errorLogs.isBlank()) {
+            return null;
+        }
+        float[] vector = model.embed(errorLogs).content().vector();
+        for (float value : vector) {
+            if (value != 0) {
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        backfilled = log.read(line -> {
+            String runId = line.getString("run");
+            entries.remove(runId);
+            if (!line.optBoolean("removed") && LogEmbeddingModel.NAME.equals(line.optString("model"))) {
+                entries.put(runId, decode(line.getString("vector")));
+            }
+        });
+        if (!backfilled) {
+            ExplanationBackfill.get().schedule();
+        }
+        evict();
+    }
+
+    synchronized boolean isBackfilled() {
+        load();
+        return backfilled;
+    }
+
+    /**
+     * Add the explanation stored in a run while the index is filled, see {@link ExplanationBackfill}.
+     */
+    void backfill(Run<?, ?> run, ErrorExplanationAction action) {
+        String runId = run.getExternalizableId();
+        synchronized (this) {
+            // explanations made since the index was created are already added
+            if (entries.containsKey(runId)) {
+                return;
+            }
+        }
+        if (action.getOriginalErrorLogs() != null) {
+            add(runId, action.getOriginalErrorLogs());
+        }
+    }
+
+    /**
+     * Mark the index as filled once all builds have been looked at.
+     */
+    synchronized void backfilled() {
+        backfilled = true;
+        append(JsonLinesFile.backfilledLine());
+    }
+
+    private void evict() {
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > Math.max(MAX_ENTRIES, 0) && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        if (log.isMostlyOutdated(entries.size())) {
+            List<JSONObject> current = new ArrayList<>();
+            for (Map.Entry<String, float[]> entry : entries.entrySet()) {
+                current.add(toJson(entry.getKey(), entry.getValue()));
+            }
+            log.rewrite(current, backfilled);
+        }
+    }
+
+    private void append(JSONObject line) {
+        log.append(List.of(line));
+    }
+
+    private static JSONObject toJson(String runId, float[] vector) {
+        JSONObject line = new JSONObject();
+        line.put("run", runId);
+        line.put("model", LogEmbeddingModel.NAME);
+        line.put("vector", encode(vector));
+        return line;
+    }
+
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static float[] decode(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(value));
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        if (vector.length != LogEmbeddingModel.DIMENSIONS) {
+            throw new IllegalArgumentException("Unexpected dimensions " + vector.length);
+        }
+        return vector;
+    }
+
+    /**
+     * Removes the explanations of deleted builds from the index.
+     */
+    @Extension
+    public static class DeletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            SimilarityIndex.get().remove(run.getExternalizableId());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.jenkins.plugins.explain_error;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller does the work, callers arriving while it is in
+ * progress wait for and share its result or failure.
+ * @param <V> the type of the result
+ */
+final class SingleFlight<V> {
+
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The work to be done once for all concurrent callers.
+     * @param <V> the type of the result
+     */
+    @FunctionalInterface
+    interface Work<V> {
+        V call() throws IOException, ExplanationException;
+    }
+
+    /**
+     * Check whether work for the given key is in progress.
+     * @param key the key
+     * @return true if a caller is currently doing the work
+     */
+    boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * Do the work, or wait for the result of a concurrent caller doing the work for the same key.
+     * @param key the key identifying the work
+     * @param work the work
+     * @return the result
+     */
+    V run(String key, Work<V> work) throws IOException, ExplanationException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V result = work.call();
+            future.complete(result);
+            return result;
+        } catch (IOException | ExplanationException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws IOException, ExplanationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExplanationException("error", "Interrupted while waiting for the explanation.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof ExplanationException explanationException) {
+                throw explanationException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ExplanationException("error", "Explanation failed: " + cause, cause);
+        }
+    }
+}
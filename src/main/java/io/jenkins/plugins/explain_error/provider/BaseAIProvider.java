@@ -1,5 +1,9 @@
 package io.jenkins.plugins.explain_error.provider;
 
+import com.google.common.annotations.VisibleForTesting;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
@@ -13,10 +17,19 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
 import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.verb.POST;
 
@@ -24,9 +37,44 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
 
     private static final Logger LOGGER = Logger.getLogger(BaseAIProvider.class.getName());
 
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(
+            SystemProperties.getInteger(BaseAIProvider.class.getName() + ".requestTimeoutSeconds", 180));
+
     protected String url;
     protected String model;
 
+    /**
+     * Budget of requests per minute, 0 for no limit.
+     */
+    private int requestsPerMinute;
+
+    /**
+     * Budget of estimated prompt tokens per minute, 0 for no limit.
+     */
+    private int tokensPerMinute;
+
+    /**
+     * Context length of the model in tokens, 0 for the default of the provider.
+     */
+    private int contextLength;
+
+    /**
+     * Assistant built for the last seen effective configuration. Building the underlying chat model creates a new
+     * HTTP client and proxy, so it is reused across calls until the configuration changes.
+     */
+    private transient volatile Cached<Assistant> cachedAssistant;
+
+    /**
+     * Streaming chat model built for the last seen effective configuration, reused like {@link #cachedAssistant}.
+     */
+    private transient volatile Cached<StreamingChatModel> cachedStreamingModel;
+
+    /**
+     * Whether the provider is properly configured, {@code null} until first checked. A saved configuration creates
+     * new providers, so this is only reset by {@link #invalidateAssistant()}.
+     */
+    private transient volatile Boolean valid;
+
     public BaseAIProvider(String url, String model) {
         this.url = url;
         this.model = model;
@@ -34,8 +82,88 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
 
     public abstract Assistant createAssistant();
 
+    /**
+     * Create a chat model that delivers the answer token by token.
+     * @return the streaming chat model or {@code null} if the provider does not support streaming, in which case the
+     *     whole answer is delivered at once
+     */
+    @CheckForNull
+    public StreamingChatModel createStreamingChatModel() {
+        return null;
+    }
+
+    /**
+     * Key identifying the effective configuration of this provider. A cached assistant is only reused while the key
+     * stays the same. Providers holding credentials should include a digest of the secret, never the plain value.
+     * @return the cache key
+     */
+    protected String getAssistantCacheKey() {
+        return url + "|" + model;
+    }
+
+    /**
+     * Get an assistant for the current configuration, creating it only if none is cached yet or the configuration
+     * changed since it was created.
+     * @return the assistant
+     */
+    Assistant getAssistant() {
+        String key = getAssistantCacheKey();
+        Cached<Assistant> cached = cachedAssistant;
+        if (cached == null || !Objects.equals(cached.key, key)) {
+            cached = new Cached<>(key, createAssistant());
+            cachedAssistant = cached;
+        }
+        return cached.value;
+    }
+
+    /**
+     * Get a streaming chat model for the current configuration, creating it only if none is cached yet or the
+     * configuration changed since it was created.
+     * @return the streaming chat model or {@code null} if streaming is not supported
+     */
+    @CheckForNull
+    StreamingChatModel getStreamingChatModel() {
+        String key = getAssistantCacheKey();
+        Cached<StreamingChatModel> cached = cachedStreamingModel;
+        if (cached == null || !Objects.equals(cached.key, key)) {
+            cached = new Cached<>(key, createStreamingChatModel());
+            cachedStreamingModel = cached;
+        }
+        return cached.value;
+    }
+
+    /**
+     * Drop the cached assistant so that the next call creates a new one, and forget whether the provider is valid.
+     */
+    public void invalidateAssistant() {
+        cachedAssistant = null;
+        cachedStreamingModel = null;
+        valid = null;
+    }
+
+    /**
+     * Prepare the model for the next request in the background, e.g. load it into memory. Called when the plugin
+     * starts, when the configuration is saved and when a failed build is viewed.
+     */
+    public void warmUp() {
+    }
+
     public abstract boolean isNotValid(@CheckForNull TaskListener listener);
 
+    /**
+     * Check whether the provider is properly configured, like {@link #isNotValid}, remembering the answer for the
+     * checks done on every page or build.
+     * @return {@code true} if the provider is properly configured
+     */
+    public boolean isValid() {
+        Boolean result = valid;
+        if (result == null) {
+            result = !isNotValid(null);
+            valid = result;
+        }
+        return result;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -44,6 +172,49 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
         return model;
     }
 
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    @DataBoundSetter
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        this.requestsPerMinute = Math.max(requestsPerMinute, 0);
+    }
+
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    @DataBoundSetter
+    public void setTokensPerMinute(int tokensPerMinute) {
+        this.tokensPerMinute = Math.max(tokensPerMinute, 0);
+    }
+
+    public int getContextLength() {
+        return contextLength;
+    }
+
+    @DataBoundSetter
+    public void setContextLength(int contextLength) {
+        this.contextLength = Math.max(contextLength, 0);
+    }
+
+    /**
+     * Get the number of tokens the model accepts in one request, prompt and answer together.
+     * @return the configured context length, or the default of the provider
+     */
+    public int getEffectiveContextLength() {
+        return contextLength > 0 ? contextLength : getDefaultContextLength();
+    }
+
+    /**
+     * Get the context length assumed when none is configured.
+     * @return the context length in tokens
+     */
+    protected int getDefaultContextLength() {
+        return 8192;
+    }
+
     /**
      * Explain error logs using the configured AI provider.
      * @param errorLogs the error logs to explain
@@ -51,22 +222,103 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
      * @throws ExplanationException if there's a communication error
      */
     public final String explainError(String errorLogs, TaskListener listener) throws ExplanationException {
-        Assistant assistant;
+        return explainError(errorLogs, listener, null);
+    }
+
+    /**
+     * Explain error logs using the configured AI provider, passing the answer to the given consumer as it arrives.
+     * @param errorLogs the error logs to explain
+     * @param tokenConsumer receives the parts of the answer as they arrive, or {@code null} to only wait for the
+     *     complete answer
+     * @return the AI explanation
+     * @throws ExplanationException if there's a communication error
+     */
+    public final String explainError(String errorLogs, TaskListener listener, @CheckForNull Consumer<String> tokenConsumer)
+            throws ExplanationException {
+        if (StringUtils.isBlank(errorLogs)) {
+            throw new ExplanationException("warning", "No error logs provided for explanation.");
+        }
+        return ask(createPrompt(errorLogs), listener, tokenConsumer);
+    }
 
+    /**
+     * Summarize one part of error logs that are too large for a single request.
+     * @param errorLogs the part of the error logs
+     * @param part the number of the part, starting at 1
+     * @param parts the number of parts
+     * @return the summary
+     * @throws ExplanationException if there's a communication error
+     */
+    public final String summarizeErrorLogs(String errorLogs, int part, int parts, TaskListener listener)
+            throws ExplanationException {
         if (StringUtils.isBlank(errorLogs)) {
             throw new ExplanationException("warning", "No error logs provided for explanation.");
         }
+        return ask(createSummaryPrompt(errorLogs, part, parts), listener, null);
+    }
 
+    /**
+     * Explain error logs from the summaries of their parts, see {@link #summarizeErrorLogs}.
+     * @param summaries the summaries of the parts in order
+     * @param tokenConsumer receives the parts of the answer as they arrive, may be {@code null}
+     * @return the AI explanation
+     * @throws ExplanationException if there's a communication error
+     */
+    public final String explainSummaries(String summaries, TaskListener listener,
+                                         @CheckForNull Consumer<String> tokenConsumer) throws ExplanationException {
+        if (StringUtils.isBlank(summaries)) {
+            throw new ExplanationException("warning", "No error logs provided for explanation.");
+        }
+        return ask(createReducePrompt(summaries), listener, tokenConsumer);
+    }
+
+    /**
+     * Fail if the provider is not properly configured, see {@link #isNotValid}.
+     * @throws ExplanationException if the provider is not properly configured
+     */
+    public final void checkConfigured(@CheckForNull TaskListener listener) throws ExplanationException {
         if (isNotValid(listener)) {
             throw new ExplanationException("error", "The provider is not properly configured.");
         }
+    }
+
+    private String ask(Prompt prompt, TaskListener listener, @CheckForNull Consumer<String> tokenConsumer)
+            throws ExplanationException {
+        checkConfigured(listener);
 
+        StreamingChatModel streamingModel = null;
+        Assistant assistant = null;
         try {
-            assistant = createAssistant();
+            if (tokenConsumer != null) {
+                streamingModel = getStreamingChatModel();
+            }
+            if (streamingModel == null) {
+                assistant = getAssistant();
+            }
         } catch (Exception e) {
             throw new ExplanationException("error", "Failed to create assistant", e);
         }
 
+        try {
+            if (streamingModel != null) {
+                return stream(streamingModel, prompt.text(), tokenConsumer);
+            }
+            String explanation = assistant.chat(prompt.text());
+            if (tokenConsumer != null) {
+                tokenConsumer.accept(explanation);
+            }
+            return explanation;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExplanationException("error", "API request was interrupted.", e);
+        } catch (Exception e) {
+            LOGGER.severe("AI API request failed: " + e.getMessage());
+            throw new ExplanationException("error", "API request failed: " + e.getMessage(), e);
+        }
+    }
+
+    @VisibleForTesting
+    static Prompt createPrompt(String errorLogs) {
         // Use PromptTemplate for dynamic prompt creation
         PromptTemplate promptTemplate = PromptTemplate.from(
                 "You are an expert Jenkins administrator and software engineer. "
@@ -83,16 +335,95 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
 
         Map<String, Object> variables = new HashMap<>();
         variables.put("errorLogs", errorLogs);
-        Prompt prompt = promptTemplate.apply(variables);
+        return promptTemplate.apply(variables);
+    }
 
+    @VisibleForTesting
+    static Prompt createSummaryPrompt(String errorLogs, int part, int parts) {
+        PromptTemplate promptTemplate = PromptTemplate.from(
+                "You are an expert Jenkins administrator and software engineer. "
+                        + "The logs of a failed Jenkins build are too large to analyze at once. "
+                        + "Below is part {{part}} of {{parts}} of the logs.\n\n"
+                        + "LOG PART:\n"
+                        + "{{errorLogs}}\n\n"
+                        + "Summarize what this part shows about the failure in at most 15 lines. "
+                        + "Quote error messages, failing tests, exit codes, file names and the first lines of stack "
+                        + "traces verbatim. Leave out progress output and steps that succeeded. "
+                        + "If this part shows no sign of the failure, answer only: No errors in this part."
+        );
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("errorLogs", errorLogs);
+        variables.put("part", part);
+        variables.put("parts", parts);
+        return promptTemplate.apply(variables);
+    }
+
+    @VisibleForTesting
+    static Prompt createReducePrompt(String summaries) {
+        PromptTemplate promptTemplate = PromptTemplate.from(
+                "You are an expert Jenkins administrator and software engineer. "
+                        + "The logs of a failed Jenkins build were too large to analyze at once and have been "
+                        + "summarized part by part, in order:\n\n"
+                        + "SUMMARIES:\n"
+                        + "{{summaries}}\n\n" + "Based on these summaries, please provide:\n"
+                        + "1. A summary of what caused the error\n"
+                        + "2. Specific steps to resolve the issue\n"
+                        + "3. Any relevant best practices to prevent similar issues\n\n"
+                        + "Keep your response concise and focused on actionable solutions. "
+                        + "Use plain text formatting only - no markdown, bold text, italic text, or special symbols for formatting."
+        );
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("summaries", summaries);
+        return promptTemplate.apply(variables);
+    }
+
+    private String stream(StreamingChatModel streamingModel, String prompt, Consumer<String> tokenConsumer)
+            throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        streamingModel.chat(prompt, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                // parts arriving after the request was given up are dropped
+                if (!result.isDone()) {
+                    tokenConsumer.accept(partialResponse);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete(completeResponse.aiMessage().text());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        Duration timeout = getRequestTimeout();
         try {
-            return assistant.chat(prompt.text());
-        } catch (Exception e) {
-            LOGGER.severe("AI API request failed: " + e.getMessage());
-            throw new ExplanationException("error", "API request failed: " + e.getMessage(), e);
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw new TimeoutException("No answer within " + timeout.toSeconds() + " seconds.");
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            throw e;
         }
     }
 
+    /**
+     * Get how long a request to the provider may take before it is given up.
+     * @return the timeout
+     */
+    protected Duration getRequestTimeout() {
+        return REQUEST_TIMEOUT;
+    }
+
     @Override
     public BaseProviderDescriptor getDescriptor() {
         return (BaseProviderDescriptor) super.getDescriptor();
@@ -102,6 +433,16 @@ public abstract class BaseAIProvider extends AbstractDescribableImpl<BaseAIProvi
         String chat(String message);
     }
 
+    private static final class Cached<T> {
+        private final String key;
+        private final T value;
+
+        private Cached(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
     public String getProviderName() {
         return getDescriptor().getDisplayName();
     }
@@ -1,7 +1,9 @@
 package io.jenkins.plugins.explain_error.provider;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -49,6 +51,31 @@ public class GeminiProvider extends BaseAIProvider {
         return AiServices.create(Assistant.class, model);
     }
 
+    @Override
+    public StreamingChatModel createStreamingChatModel() {
+        return GoogleAiGeminiStreamingChatModel.builder()
+                .baseUrl(Util.fixEmptyAndTrim(getUrl())) // Will use default if null
+                .apiKey(getApiKey().getPlainText())
+                .modelName(getModel())
+                .temperature(0.3)
+                .logRequests(LOGGER.isLoggable(Level.FINE))
+                .logResponses(LOGGER.isLoggable(Level.FINE))
+                .build();
+    }
+
+    @Override
+    protected String getAssistantCacheKey() {
+        return super.getAssistantCacheKey() + "|" + Util.getDigestOf(Secret.toString(getApiKey()));
+    }
+
+    /**
+     * The Gemini models accept 1M tokens.
+     */
+    @Override
+    protected int getDefaultContextLength() {
+        return 1_048_576;
+    }
+
     @Override
     public boolean isNotValid(@CheckForNull TaskListener listener) {
         if (listener != null) {
@@ -1,44 +1,307 @@
 package io.jenkins.plugins.explain_error.provider;
 
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import com.google.common.annotations.VisibleForTesting;
 import hudson.Extension;
+import hudson.ProxyConfiguration;
 import hudson.Util;
 import hudson.model.TaskListener;
 import hudson.util.FormValidation;
 import io.jenkins.plugins.explain_error.ExplanationException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.verb.POST;
 
+/**
+ * Provider for models served by Ollama.
+ * Loading a model into memory takes minutes on slow hosts, so the model is loaded ahead of the first explanation, see
+ * {@link #warmUp()}, and kept loaded for {@link #getKeepAlive()} after each request. The context of each request is
+ * sized to its prompt instead of the small default of the server.
+ */
 public class OllamaProvider extends BaseAIProvider {
 
     private static final Logger LOGGER = Logger.getLogger(OllamaProvider.class.getName());
 
+    static final String DEFAULT_KEEP_ALIVE = "30m";
+
+    /**
+     * Smallest context of a request, the default of Ollama.
+     */
+    static final int MIN_NUM_CTX = 2048;
+
+    /**
+     * Tokens reserved for the answer in addition to the prompt.
+     */
+    static final int ANSWER_TOKENS = 1024;
+
+    /**
+     * Minimum time between two warm-ups of the same model.
+     */
+    private static final long WARM_UP_INTERVAL = TimeUnit.SECONDS.toMillis(
+            SystemProperties.getInteger(OllamaProvider.class.getName() + ".warmUpIntervalSeconds", 60));
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(180);
+
+    private static volatile HttpClient httpClient;
+
+    /**
+     * How long the model stays loaded after a request, as an Ollama duration such as {@code 30m}, or {@code -1} to
+     * keep it loaded.
+     */
+    private String keepAlive = DEFAULT_KEEP_ALIVE;
+
+    /**
+     * Context of the last request, the model is loaded with it again when warming up so it is not reloaded for the
+     * next request.
+     */
+    private transient volatile int lastNumCtx = MIN_NUM_CTX;
+    private transient volatile long lastWarmUp;
+    private transient AtomicBoolean warmingUp = new AtomicBoolean();
+
     @DataBoundConstructor
     public OllamaProvider(String url, String model) {
         super(url, model);
     }
 
+    protected Object readResolve() {
+        warmingUp = new AtomicBoolean();
+        lastNumCtx = MIN_NUM_CTX;
+        if (keepAlive == null) {
+            keepAlive = DEFAULT_KEEP_ALIVE;
+        }
+        return this;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    @DataBoundSetter
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = Util.fixEmptyAndTrim(keepAlive) != null ? keepAlive.trim() : DEFAULT_KEEP_ALIVE;
+    }
+
+    @Override
+    protected String getAssistantCacheKey() {
+        return super.getAssistantCacheKey() + "|" + getEffectiveContextLength();
+    }
+
+    /**
+     * Creates an assistant that picks the chat model for the context the prompt needs. The chat models are created
+     * per context size on first use, and the keep-alive of the model is renewed after each request.
+     */
     @Override
     public Assistant createAssistant() {
-        ChatModel model = OllamaChatModel.builder()
+        Map<Integer, Assistant> assistants = new ConcurrentHashMap<>();
+        return message -> {
+            int numCtx = getNumCtx(message.length() / 4);
+            String answer = assistants.computeIfAbsent(numCtx,
+                    n -> AiServices.create(Assistant.class, createChatModel(n))).chat(message);
+            renewKeepAlive(numCtx);
+            return answer;
+        };
+    }
+
+    private ChatModel createChatModel(int numCtx) {
+        return OllamaChatModel.builder()
+                .baseUrl(getUrl())
+                .modelName(getModel())
+                .temperature(0.3)
+                .numCtx(numCtx)
+                .timeout(TIMEOUT)
+                .logRequests(LOGGER.isLoggable(Level.FINE))
+                .logResponses(LOGGER.isLoggable(Level.FINE))
+                .build();
+    }
+
+    @Override
+    public StreamingChatModel createStreamingChatModel() {
+        Map<Integer, StreamingChatModel> models = new ConcurrentHashMap<>();
+        return new StreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                int numCtx = getNumCtx(length(chatRequest) / 4);
+                models.computeIfAbsent(numCtx, OllamaProvider.this::createStreamingChatModel)
+                        .chat(chatRequest, new StreamingChatResponseHandler() {
+                            @Override
+                            public void onPartialResponse(String partialResponse) {
+                                handler.onPartialResponse(partialResponse);
+                            }
+
+                            @Override
+                            public void onCompleteResponse(ChatResponse completeResponse) {
+                                renewKeepAlive(numCtx);
+                                handler.onCompleteResponse(completeResponse);
+                            }
+
+                            @Override
+                            public void onError(Throwable error) {
+                                handler.onError(error);
+                            }
+                        });
+            }
+        };
+    }
+
+    private StreamingChatModel createStreamingChatModel(int numCtx) {
+        return OllamaStreamingChatModel.builder()
                 .baseUrl(getUrl())
                 .modelName(getModel())
                 .temperature(0.3)
-                .timeout(Duration.ofSeconds(180))
+                .numCtx(numCtx)
+                .timeout(TIMEOUT)
                 .logRequests(LOGGER.isLoggable(Level.FINE))
                 .logResponses(LOGGER.isLoggable(Level.FINE))
                 .build();
-        return AiServices.create(Assistant.class, model);
+    }
+
+    private static int length(ChatRequest chatRequest) {
+        int length = 0;
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                length += userMessage.singleText().length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Get the context of a request, the prompt and the answer rounded up to a power of two, so that the model is
+     * only reloaded by Ollama when a prompt needs a larger context than the previous one.
+     * @param promptTokens the estimated tokens of the prompt
+     * @return the context between {@link #MIN_NUM_CTX} and the context length of the model
+     */
+    @VisibleForTesting
+    int getNumCtx(int promptTokens) {
+        int needed = promptTokens + ANSWER_TOKENS;
+        int numCtx = MIN_NUM_CTX;
+        while (numCtx < needed && numCtx < Integer.MAX_VALUE / 2) {
+            numCtx *= 2;
+        }
+        return Math.min(numCtx, getEffectiveContextLength());
+    }
+
+    /**
+     * Requests sized to their prompt use up to 8192 tokens unless configured otherwise, which current models support.
+     */
+    @Override
+    protected int getDefaultContextLength() {
+        return 8192;
+    }
+
+    @Override
+    protected Duration getRequestTimeout() {
+        return TIMEOUT;
+    }
+
+    /**
+     * Loads the model in the background, unless it was loaded within the last minute or is being loaded.
+     */
+    @Override
+    public void warmUp() {
+        if (isNotValid(null) || System.currentTimeMillis() - lastWarmUp < WARM_UP_INTERVAL
+                || !warmingUp.compareAndSet(false, true)) {
+            return;
+        }
+        load(lastNumCtx).whenComplete((result, error) -> {
+            lastWarmUp = System.currentTimeMillis();
+            warmingUp.set(false);
+        });
+    }
+
+    /**
+     * Requests of the chat models carry no keep-alive, so Ollama would unload the model after its default of five
+     * minutes. Loading it again right after a request only sets the keep-alive, as the model is still loaded.
+     */
+    private void renewKeepAlive(int numCtx) {
+        lastNumCtx = numCtx;
+        lastWarmUp = System.currentTimeMillis();
+        load(numCtx);
+    }
+
+    /**
+     * Ask Ollama to load the model without generating anything, see
+     * <a href="https://github.com/ollama/ollama/blob/main/docs/api.md#load-a-model">load a model</a>.
+     * The request is sent asynchronously, so no thread waits the minutes loading can take.
+     * @return a future completed once the model has been loaded or loading failed
+     */
+    private CompletableFuture<Void> load(int numCtx) {
+        JSONObject options = new JSONObject();
+        options.put("num_ctx", numCtx);
+        JSONObject body = new JSONObject();
+        body.put("model", getModel());
+        body.put("keep_alive", keepAlive);
+        body.put("options", options);
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(getUrl().replaceAll("/+$", "") + "/api/generate"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Failed to load the Ollama model " + getModel(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.currentTimeMillis();
+        return getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        LOGGER.log(Level.WARNING, "Failed to load the Ollama model " + getModel(), error);
+                    } else if (response.statusCode() != 200) {
+                        LOGGER.warning("Failed to load the Ollama model " + getModel() + ": HTTP "
+                                + response.statusCode() + " " + response.body());
+                    } else {
+                        LOGGER.fine(() -> "Loaded the Ollama model " + getModel() + " in "
+                                + (System.currentTimeMillis() - start) + " ms with a context of " + numCtx + " tokens");
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Get the client shared by the requests loading models, created on first use.
+     */
+    private static HttpClient getHttpClient() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (OllamaProvider.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = ProxyConfiguration.newHttpClient();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
     }
 
     @Override
@@ -1,7 +1,9 @@
 package io.jenkins.plugins.explain_error.provider;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -51,6 +53,31 @@ public class OpenAIProvider extends BaseAIProvider {
         return AiServices.create(Assistant.class, model);
     }
 
+    @Override
+    public StreamingChatModel createStreamingChatModel() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(Util.fixEmptyAndTrim(getUrl())) // Will use default if null
+                .apiKey(getApiKey().getPlainText())
+                .modelName(getModel())
+                .temperature(0.3)
+                .logRequests(LOGGER.isLoggable(Level.FINE))
+                .logResponses(LOGGER.isLoggable(Level.FINE))
+                .build();
+    }
+
+    @Override
+    protected String getAssistantCacheKey() {
+        return super.getAssistantCacheKey() + "|" + Util.getDigestOf(Secret.toString(getApiKey()));
+    }
+
+    /**
+     * The models currently offered by OpenAI accept at least 128k tokens.
+     */
+    @Override
+    protected int getDefaultContextLength() {
+        return 128_000;
+    }
+
     @Override
     public boolean isNotValid(@CheckForNull TaskListener listener) {
         if (listener != null) {
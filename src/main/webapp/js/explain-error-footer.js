@@ -22,40 +22,53 @@ document.addEventListener('DOMContentLoaded', function () {
   }
 });
 
+// How long the server holds a status request while the build is running
+const STATUS_WAIT_SECONDS = 25;
+
 function checkBuildStatusAndAddButton() {
-  checkBuildStatus(function(buildingStatus) {
+  const requested = Date.now();
+  fetchStatus(STATUS_WAIT_SECONDS, function(status) {
     // Build status 2 is completed and it's UNSTABLE or FAILURE
-    if (buildingStatus == 2) {
+    if (status.buildingStatus == 2) {
       // Build is completed, show the button
+      if (!status.hasExplanation) {
+        warmUp();
+      }
       addExplainErrorButton();
-    } else if (buildingStatus == 1) {
-      // Build is still running, check again after a delay
-      setTimeout(checkBuildStatusAndAddButton, 5000); // Check every 5 seconds
+    } else if (status.buildingStatus == 1) {
+      // Build is still running, the server answers as soon as it completes.
+      // Back off if the request returned early without waiting.
+      const delay = Date.now() - requested < 1000 ? 5000 : 0;
+      setTimeout(checkBuildStatusAndAddButton, delay);
     }
   });
 }
 
-function checkBuildStatus(callback) {
+function fetchStatus(waitSeconds, callback) {
   const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
-  const url = basePath + '/console-explain-error/checkBuildStatus';
-
-  const headers = crumb.wrap({
-    "Content-Type": "application/x-www-form-urlencoded",
-  });
+  const url = basePath + '/console-explain-error/status?wait=' + waitSeconds;
 
-  fetch(url, {
-    method: "POST",
-    headers: headers,
-    body: ""
-  })
+  fetch(url)
   .then(response => response.json())
   .then(data => {
-    callback(data.buildingStatus);
+    callback(data);
   })
   .catch(error => {
     console.warn('Error checking build status:', error);
     // If check fails, assume build is complete and show button
-    callback(false);
+    callback({ buildingStatus: 2, hasExplanation: false });
+  });
+}
+
+// Let the provider load its model while the user reads the console
+function warmUp() {
+  const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
+  fetch(basePath + '/console-explain-error/warmUp', {
+    method: "POST",
+    headers: crumb.wrap({})
+  })
+  .catch(error => {
+    console.warn('Error warming up the provider:', error);
   });
 }
 
@@ -143,32 +156,14 @@ function explainConsoleError() {
 }
 
 function checkExistingExplanation() {
-  const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
-  const url = basePath + '/console-explain-error/checkExistingExplanation';
-
-  const headers = crumb.wrap({
-    "Content-Type": "application/x-www-form-urlencoded",
-  });
-
-  fetch(url, {
-    method: "POST",
-    headers: headers,
-    body: ""
-  })
-  .then(response => response.json())
-  .then(data => {
-    if (data.hasExplanation) {
+  fetchStatus(0, function(status) {
+    if (status.hasExplanation) {
       // Show confirmation dialog
-      showConfirmationDialog(data.timestamp);
+      showConfirmationDialog(status.timestamp);
     } else {
       // No existing explanation, proceed with new request
       sendExplainRequest(false);
     }
-  })
-  .catch(error => {
-    console.warn('Error checking existing explanation:', error);
-    // If check fails, proceed with new request
-    sendExplainRequest(false);
   });
 }
 
@@ -220,8 +215,120 @@ function hideConfirmationDialog() {
 }
 
 function sendExplainRequest(forceNew = false) {
+  // Stream the explanation when the browser can read the response incrementally
+  if (window.ReadableStream && window.TextDecoder) {
+    streamExplanation(forceNew);
+  } else {
+    startExplanation(forceNew);
+  }
+}
+
+// How long to wait for the first event of a stream before falling back to polling, e.g. behind a buffering proxy
+const STREAM_FIRST_EVENT_MILLIS = 10000;
+
+function streamExplanation(forceNew) {
   const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
-  const url = basePath + '/console-explain-error/explainConsoleError';
+  const url = basePath + '/console-explain-error/streamExplanation';
+
+  const headers = crumb.wrap({
+    "Content-Type": "application/x-www-form-urlencoded",
+  });
+
+  const body = forceNew ? "forceNew=true" : "";
+  const controller = new AbortController();
+  let receivedEvent = false;
+  let fallenBack = false;
+
+  function fallBack() {
+    if (!fallenBack) {
+      fallenBack = true;
+      controller.abort();
+      // the server explains in the background, so this picks up the explanation in progress
+      startExplanation(forceNew);
+    }
+  }
+
+  clearExplanationContent();
+  showSpinner();
+
+  const timer = setTimeout(function() {
+    if (!receivedEvent) {
+      console.warn('No streamed event received in time, falling back');
+      fallBack();
+    }
+  }, STREAM_FIRST_EVENT_MILLIS);
+
+  fetch(url, {
+    method: "POST",
+    headers: headers,
+    body: body,
+    signal: controller.signal
+  })
+  .then(response => {
+    if (!response.ok || !response.body) {
+      throw new Error('Explain failed');
+    }
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+
+    function read() {
+      return reader.read().then(({ done, value }) => {
+        if (done) {
+          return;
+        }
+        buffer += decoder.decode(value, { stream: true });
+        let index;
+        while ((index = buffer.indexOf('\n\n')) >= 0) {
+          receivedEvent = true;
+          clearTimeout(timer);
+          handleStreamEvent(buffer.substring(0, index));
+          buffer = buffer.substring(index + 2);
+        }
+        return read();
+      });
+    }
+    return read();
+  })
+  .catch(error => {
+    if (fallenBack) {
+      return;
+    }
+    clearTimeout(timer);
+    if (!receivedEvent) {
+      // Streaming is not possible, wait for the complete explanation instead
+      console.warn('Streaming explanation failed, falling back:', error);
+      fallBack();
+    } else {
+      notificationBar.show(`Error: ${error.message}`, notificationBar.ERROR);
+    }
+  });
+}
+
+function handleStreamEvent(rawEvent) {
+  let event = 'message';
+  let data = '';
+  rawEvent.split('\n').forEach(line => {
+    if (line.startsWith('event: ')) {
+      event = line.substring(7);
+    } else if (line.startsWith('data: ')) {
+      data += line.substring(6);
+    }
+  });
+  const json = JSON.parse(data);
+  if (event == 'token') {
+    appendExplanationToken(json.text);
+  } else if (event == 'job') {
+    // the explanation has been queued, its parts follow
+  } else {
+    // done, error, or pending when the explanation takes longer and is polled from now on
+    handleExplanationResponse(json);
+  }
+}
+
+function startExplanation(forceNew) {
+  const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
+  const url = basePath + '/console-explain-error/startExplanation';
 
   const headers = crumb.wrap({
     "Content-Type": "application/x-www-form-urlencoded",
@@ -243,27 +350,62 @@ function sendExplainRequest(forceNew = false) {
     }
     return response.json();
   })
+  .then(handleExplanationResponse)
+  .catch(error => {
+    notificationBar.show(`Error: ${error.message}`, notificationBar.ERROR);
+    hideContainer();
+  });
+}
+
+function pollExplanationStatus(jobId) {
+  const requested = Date.now();
+  const basePath = window.location.pathname.replace(/\/console(Full)?$/, '');
+  const url = basePath + '/console-explain-error/explanationStatus';
+
+  const headers = crumb.wrap({
+    "Content-Type": "application/x-www-form-urlencoded",
+  });
+
+  // The server holds the request until the explanation is ready or the wait time is over
+  fetch(url, {
+    method: "POST",
+    headers: headers,
+    body: "jobId=" + encodeURIComponent(jobId) + "&wait=25"
+  })
+  .then(response => response.json())
   .then(json => {
-    try {
-      if (json.status == "success") {
-        showErrorExplanation(json.message, json.providerName);
+    // Back off if the request returned early without waiting
+    const delay = Date.now() - requested < 1000 && (json.state == "queued" || json.state == "running") ? 2000 : 0;
+    setTimeout(function() {
+      handleExplanationResponse(json);
+    }, delay);
+  })
+  .catch(error => {
+    notificationBar.show(`Error: ${error.message}`, notificationBar.ERROR);
+    hideContainer();
+  });
+}
+
+function handleExplanationResponse(json) {
+  try {
+    if (json.state == "queued" || json.state == "running") {
+      pollExplanationStatus(json.jobId);
+    }
+    else if (json.status == "success") {
+      showErrorExplanation(json.message, json.providerName);
+    }
+    else {
+      if (json.status == "warning") {
+        notificationBar.show(json.message, notificationBar.WARNING);
       }
       else {
-        if (json.status == "warning") {
-          notificationBar.show(json.message, notificationBar.WARNING);
-        }
-        else {
-          notificationBar.show(json.message, notificationBar.ERROR);
-        }
-        hideContainer();
+        notificationBar.show(json.message, notificationBar.ERROR);
       }
-    } catch (e) {
-      notificationBar.show(`Error: ${error.message}`, notificationBar.ERROR);
+      hideContainer();
     }
-  })
-  .catch(error => {
+  } catch (error) {
     notificationBar.show(`Error: ${error.message}`, notificationBar.ERROR);
-  });
+  }
 }
 
 function showErrorExplanation(message, providerName) {
@@ -278,6 +420,16 @@ function showErrorExplanation(message, providerName) {
   content.classList.remove('jenkins-hidden');
 }
 
+function appendExplanationToken(text) {
+  const container = document.getElementById('explain-error-container');
+  const spinner = document.getElementById('explain-error-spinner');
+  const content = document.getElementById('explain-error-content');
+  container.classList.remove('jenkins-hidden');
+  spinner.classList.add('jenkins-hidden');
+  content.textContent += text;
+  content.classList.remove('jenkins-hidden');
+}
+
 function showSpinner() {
   const container = document.getElementById('explain-error-container');
   const spinner = document.getElementById('explain-error-spinner');
@@ -0,0 +1,124 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.FailureBuilder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockFolder;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AutoExplanationListenerTest {
+
+    @Test
+    void testMatches(JenkinsRule jenkins) {
+        assertTrue(AutoExplanationListener.matches("team-a/build", null, true));
+        assertFalse(AutoExplanationListener.matches("team-a/build", " ", false));
+
+        String names = "team-a\n/team-b/nightly/\n*-release";
+        assertTrue(AutoExplanationListener.matches("team-a", names, false));
+        assertTrue(AutoExplanationListener.matches("team-a/build", names, false));
+        assertTrue(AutoExplanationListener.matches("team-a/sub/build", names, false));
+        assertFalse(AutoExplanationListener.matches("team-ab/build", names, false));
+        assertTrue(AutoExplanationListener.matches("team-b/nightly", names, false));
+        assertFalse(AutoExplanationListener.matches("team-b/weekly", names, false));
+        assertTrue(AutoExplanationListener.matches("app-release", names, false));
+        assertFalse(AutoExplanationListener.matches("app-release-notes", names, false));
+    }
+
+    @Test
+    void testFailedBuildExplained(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableAutoExplanation(true);
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject("failing");
+        project.getBuildersList().add(new FailureBuilder());
+        FreeStyleBuild build = jenkins.buildAndAssertStatus(Result.FAILURE, project);
+
+        ErrorExplanationAction action = awaitExplanation(build);
+        assertNotNull(action);
+        assertEquals("Request was successful", action.getExplanation());
+        assertEquals(1, provider.getCallCount());
+    }
+
+    @Test
+    void testFilteredAndSuccessfulBuildsNotExplained(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableAutoExplanation(true);
+        config.setAutoExplanationIncludes("team");
+        config.setAutoExplanationExcludes("team/skipped");
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject other = jenkins.createFreeStyleProject("other");
+        other.getBuildersList().add(new FailureBuilder());
+        FreeStyleBuild otherBuild = jenkins.buildAndAssertStatus(Result.FAILURE, other);
+
+        MockFolder folder = jenkins.createFolder("team");
+        FreeStyleProject skipped = folder.createProject(FreeStyleProject.class, "skipped");
+        skipped.getBuildersList().add(new FailureBuilder());
+        FreeStyleBuild skippedBuild = jenkins.buildAndAssertStatus(Result.FAILURE, skipped);
+
+        FreeStyleProject successful = folder.createProject(FreeStyleProject.class, "successful");
+        FreeStyleBuild successfulBuild = jenkins.buildAndAssertSuccess(successful);
+
+        FreeStyleProject failing = folder.createProject(FreeStyleProject.class, "failing");
+        failing.getBuildersList().add(new FailureBuilder());
+        FreeStyleBuild failingBuild = jenkins.buildAndAssertStatus(Result.FAILURE, failing);
+
+        // jobs are queued in order, so the earlier builds would have been explained by now
+        assertNotNull(awaitExplanation(failingBuild));
+        assertNull(otherBuild.getAction(ErrorExplanationAction.class));
+        assertNull(skippedBuild.getAction(ErrorExplanationAction.class));
+        assertNull(successfulBuild.getAction(ErrorExplanationAction.class));
+        assertEquals(1, provider.getCallCount());
+    }
+
+    @Test
+    void testJobsRunWithTheAuthenticationOfTheirRequest(JenkinsRule jenkins) throws Exception {
+        jenkins.jenkins.setSecurityRealm(jenkins.createDummySecurityRealm());
+        ExplanationJobs jobs = ExplanationJobs.get();
+        ExplanationJobs.Job job;
+        try (ACLContext ignored = ACL.as2(User.getById("alice", true).impersonate2())) {
+            job = jobs.submit("run#1", j -> j.complete("success", "Test", Jenkins.getAuthentication2().getName()));
+        }
+        job.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals("alice", job.getMessage());
+
+        try (ACLContext ignored = ACL.as2(User.getById("alice", true).impersonate2())) {
+            job = jobs.submitAutomatic("run#2", j -> j.complete("success", "Test", Jenkins.getAuthentication2().getName()));
+        }
+        job.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(ACL.SYSTEM2.getName(), job.getMessage());
+        assertTrue(job.isAutomatic());
+    }
+
+    private static ErrorExplanationAction awaitExplanation(FreeStyleBuild build) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ErrorExplanationAction action = build.getAction(ErrorExplanationAction.class);
+            if (action != null) {
+                return action;
+            }
+            Thread.sleep(100);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package io.jenkins.plugins.explain_error;
+
+import java.util.concurrent.TimeUnit;
+import jenkins.benchmark.jmh.BenchmarkFinder;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks annotated with {@link jenkins.benchmark.jmh.JmhBenchmark}.
+ * Only executed with the {@code benchmark} profile, see the pom. Throughput and allocation rate of each benchmark
+ * are written to {@code jmh-report.json}.
+ */
+class BenchmarkRunner {
+
+    @Test
+    void runJmhBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(2)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-report.json");
+
+        // e.g. -Dbenchmark.logSizes=1,2048 for logs from 1 MB to 2 GB
+        String logSizes = System.getProperty("benchmark.logSizes");
+        if (logSizes != null && !logSizes.isBlank()) {
+            options.param("sizeMb", logSizes.split(","));
+        }
+
+        new BenchmarkFinder(getClass()).findBenchmarks(options);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package io.jenkins.plugins.explain_error;
+
+import hudson.ExtensionList;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import io.jenkins.plugins.explain_error.provider.OllamaProvider;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.TransientActionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the cost {@link ConsoleExplainErrorActionFactory} adds to the action lookups done for every build
+ * when the build history or the REST API of a job is rendered.
+ */
+@JmhBenchmark
+public class BuildHistoryBenchmark {
+
+    public enum Mode {
+        /** Without the factory, as the baseline. */
+        ABSENT,
+        /** Explanations disabled in the global configuration. */
+        DISABLED,
+        /** Explanations enabled with a valid provider. */
+        ENABLED
+    }
+
+    @State(Scope.Benchmark)
+    public static class JenkinsState extends JmhBenchmarkState {
+        @Param({"ABSENT", "DISABLED", "ENABLED"})
+        public Mode mode;
+
+        @Param({"200"})
+        public int builds;
+
+        FreeStyleProject project;
+
+        @Override
+        public void setup() throws Exception {
+            GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+            config.setAiProvider(new OllamaProvider("http://localhost:11434", "gemma3:1b"));
+            config.setEnableExplanation(mode != Mode.DISABLED);
+            if (mode == Mode.ABSENT) {
+                ExtensionList.lookup(TransientActionFactory.class)
+                        .remove(ExtensionList.lookupSingleton(ConsoleExplainErrorActionFactory.class));
+            }
+            project = getJenkins().createProject(FreeStyleProject.class, "history");
+            for (int i = 0; i < builds; i++) {
+                project.scheduleBuild2(0).get();
+            }
+        }
+    }
+
+    /**
+     * All actions of every build, like the build history widget and the REST API.
+     */
+    @Benchmark
+    public int allActions(JenkinsState state) {
+        int count = 0;
+        for (FreeStyleBuild build : state.project.getBuilds()) {
+            count += build.getAllActions().size();
+        }
+        return count;
+    }
+
+    /**
+     * An unrelated action of every build, which the factory is not asked for.
+     */
+    @Benchmark
+    public int getAction(JenkinsState state) {
+        int count = 0;
+        for (FreeStyleBuild build : state.project.getBuilds()) {
+            if (build.getAction(ErrorExplanationAction.class) == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
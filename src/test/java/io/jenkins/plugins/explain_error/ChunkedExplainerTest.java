@@ -0,0 +1,87 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.TaskListener;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ChunkedExplainerTest {
+
+    @Test
+    void testSplitAtLineEnds(JenkinsRule jenkins) {
+        List<String> chunks = ChunkedExplainer.split("aaaa\nbbbb\ncccc\n", 10);
+        assertEquals(List.of("aaaa\nbbbb\n", "cccc\n"), chunks);
+        assertEquals(List.of("short"), ChunkedExplainer.split("short", 10));
+        assertEquals(List.of(""), ChunkedExplainer.split("", 10));
+    }
+
+    @Test
+    void testSplitLongLines(JenkinsRule jenkins) {
+        List<String> chunks = ChunkedExplainer.split("x".repeat(25), 10);
+        assertEquals(List.of("x".repeat(10), "x".repeat(10), "x".repeat(5)), chunks);
+    }
+
+    @Test
+    void testChunkSizeFromContextLength(JenkinsRule jenkins) {
+        TestProvider provider = new TestProvider();
+        provider.setContextLength(10_000);
+        assertEquals(20_000, ChunkedExplainer.getChunkChars(provider));
+        provider.setContextLength(0);
+        assertEquals(provider.getEffectiveContextLength() * 2, ChunkedExplainer.getChunkChars(provider));
+    }
+
+    @Test
+    void testSummarizeInParallel(JenkinsRule jenkins) throws Exception {
+        TaskListener listener = jenkins.createTaskListener();
+        List<String> chunks = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            chunks.add("chunk " + i);
+        }
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        String summaries = ChunkedExplainer.summarize(chunks, 3, listener, (chunk, part, parts) -> {
+            threads.add(Thread.currentThread().getName());
+            assertEquals(6, parts);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            return "summary of " + chunk;
+        });
+        assertTrue(summaries.startsWith("Part 1 of 6:\nsummary of chunk 1\n\nPart 2 of 6:\nsummary of chunk 2"), summaries);
+        assertTrue(summaries.endsWith("Part 6 of 6:\nsummary of chunk 6"), summaries);
+        assertTrue(threads.size() > 1, threads.toString());
+    }
+
+    @Test
+    void testSummarizeFailure(JenkinsRule jenkins) {
+        TaskListener listener = jenkins.createTaskListener();
+        ExplanationException e = assertThrows(ExplanationException.class, () -> ChunkedExplainer.summarize(
+                List.of("a", "b", "c"), 2, listener, (chunk, part, parts) -> {
+                    if (chunk.equals("b")) {
+                        throw new ExplanationException("error", "API request failed: b");
+                    }
+                    return chunk;
+                }));
+        assertEquals("API request failed: b", e.getMessage());
+    }
+
+    @Test
+    void testSummarizeKeepsLastChunks(JenkinsRule jenkins) throws Exception {
+        TaskListener listener = jenkins.createTaskListener();
+        List<String> chunks = new ArrayList<>();
+        for (int i = 1; i <= ChunkedExplainer.MAX_CHUNKS + 2; i++) {
+            chunks.add("chunk " + i);
+        }
+        String summaries = ChunkedExplainer.summarize(chunks, 1, listener, (chunk, part, parts) -> chunk);
+        assertTrue(summaries.startsWith("Part 1 of " + ChunkedExplainer.MAX_CHUNKS + ":\nchunk 3\n"), summaries);
+    }
+}
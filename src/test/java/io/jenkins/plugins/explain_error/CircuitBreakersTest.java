@@ -0,0 +1,99 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakersTest {
+
+    private static CircuitBreakers.CircuitBreaker breaker(long openMillis) {
+        return new CircuitBreakers.CircuitBreaker("Test", 10, 4, 50, 80, 1000, openMillis, 2);
+    }
+
+    private static void call(CircuitBreakers.CircuitBreaker breaker, boolean success, long millis) throws Exception {
+        breaker.acquirePermission();
+        breaker.record(success, millis);
+    }
+
+    @Test
+    void testOpensOnFailureRate() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(60_000);
+        call(breaker, false, 10);
+        call(breaker, false, 10);
+        call(breaker, true, 10);
+        // not enough calls yet
+        assertEquals(CircuitBreakers.State.CLOSED, breaker.getState());
+        call(breaker, true, 10);
+        assertEquals(CircuitBreakers.State.OPEN, breaker.getState());
+        assertEquals(50, breaker.getFailureRate());
+
+        ExplanationException e = assertThrows(ExplanationException.class, breaker::acquirePermission);
+        assertTrue(e.getMessage().startsWith("The AI provider Test is unavailable"), e.getMessage());
+        assertEquals(1, breaker.getRejected());
+    }
+
+    @Test
+    void testOpensOnSlowCallRate() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true, 5000);
+        }
+        assertEquals(CircuitBreakers.State.OPEN, breaker.getState());
+        assertEquals(100, breaker.getSlowCallRate());
+    }
+
+    @Test
+    void testStaysClosedWhenHealthy() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 30; i++) {
+            call(breaker, i % 5 != 0, 10);
+        }
+        assertEquals(CircuitBreakers.State.CLOSED, breaker.getState());
+        assertEquals(20, breaker.getFailureRate());
+        assertEquals(10, breaker.getCalls());
+    }
+
+    @Test
+    void testHalfOpenClosesAfterSuccessfulTrials() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(0);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false, 10);
+        }
+        assertEquals(CircuitBreakers.State.HALF_OPEN, breaker.getState());
+
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        // only two trial calls at a time
+        assertThrows(ExplanationException.class, breaker::acquirePermission);
+        breaker.record(true, 10);
+        breaker.record(true, 10);
+        assertEquals(CircuitBreakers.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+    @Test
+    void testHalfOpenReopensOnFailedTrial() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(50);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false, 10);
+        }
+        Thread.sleep(100);
+        call(breaker, false, 10);
+        assertEquals(CircuitBreakers.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testReleasedTrialDoesNotCount() throws Exception {
+        CircuitBreakers.CircuitBreaker breaker = breaker(0);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false, 10);
+        }
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        breaker.release();
+        assertDoesNotThrow(breaker::acquirePermission);
+    }
+}
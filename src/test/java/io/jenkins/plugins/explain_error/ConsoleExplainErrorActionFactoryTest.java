@@ -6,6 +6,8 @@ import hudson.model.Action;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Run;
+import io.jenkins.plugins.explain_error.provider.OllamaProvider;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
 import java.util.Collection;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -16,6 +18,7 @@ class ConsoleExplainErrorActionFactoryTest {
 
     @Test
     void testFactoryBasicFunctionality(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl.get().setAiProvider(new TestProvider());
         ConsoleExplainErrorActionFactory factory = new ConsoleExplainErrorActionFactory();
 
         // Test factory creation
@@ -43,6 +46,7 @@ class ConsoleExplainErrorActionFactoryTest {
 
     @Test
     void testFactoryConsistency(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl.get().setAiProvider(new TestProvider());
         ConsoleExplainErrorActionFactory factory = new ConsoleExplainErrorActionFactory();
 
         FreeStyleProject project = jenkins.createFreeStyleProject("test");
@@ -58,4 +62,28 @@ class ConsoleExplainErrorActionFactoryTest {
         assertEquals(1, actions1.size());
         assertEquals(1, actions2.size());
     }
+
+    @Test
+    void testNothingContributedWhenUnavailable(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        FreeStyleProject project = jenkins.createFreeStyleProject("test");
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        // no provider configured
+        assertNull(build.getAction(ConsoleExplainErrorAction.class));
+
+        config.setAiProvider(new OllamaProvider("http://localhost:1234", ""));
+        assertNull(build.getAction(ConsoleExplainErrorAction.class));
+
+        config.setAiProvider(new TestProvider());
+        assertNotNull(build.getAction(ConsoleExplainErrorAction.class));
+
+        config.setEnableExplanation(false);
+        assertNull(build.getAction(ConsoleExplainErrorAction.class));
+    }
+
+    @Test
+    void testOnlyAskedForItsOwnActionType(JenkinsRule jenkins) {
+        assertEquals(ConsoleExplainErrorAction.class, new ConsoleExplainErrorActionFactory().actionType());
+    }
 }
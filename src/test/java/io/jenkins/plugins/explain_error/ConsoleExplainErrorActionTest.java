@@ -160,6 +160,64 @@ class ConsoleExplainErrorActionTest {
         }
     }
 
+    @Test
+    void testStartExplanationAndWaitForStatus() throws IOException {
+        try (JenkinsRule.WebClient client = rule.createWebClient()) {
+            URL url = new URL(rule.jenkins.getRootUrl() + build.getUrl() + "console-explain-error/startExplanation");
+            Page page = client.getPage(new WebRequest(url, HttpMethod.POST));
+            JSONObject responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            String jobId = responseJson.getString("jobId");
+            assertNotNull(jobId);
+
+            url = new URL(rule.jenkins.getRootUrl() + build.getUrl() + "console-explain-error/explanationStatus");
+            WebRequest request = new WebRequest(url, HttpMethod.POST);
+            request.setRequestParameters(java.util.List.of(
+                new org.htmlunit.util.NameValuePair("jobId", jobId),
+                new org.htmlunit.util.NameValuePair("wait", "10")
+            ));
+            page = client.getPage(request);
+            responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertEquals("done", responseJson.getString("state"));
+            assertEquals("success", responseJson.getString("status"));
+            assertEquals("Request was successful", responseJson.getString("message"));
+            assertNotNull(build.getAction(ErrorExplanationAction.class));
+
+            // a second start reuses the stored explanation without queuing a job
+            url = new URL(rule.jenkins.getRootUrl() + build.getUrl() + "console-explain-error/startExplanation");
+            page = client.getPage(new WebRequest(url, HttpMethod.POST));
+            responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertEquals("success", responseJson.getString("status"));
+            assertFalse(responseJson.has("jobId"));
+            assertEquals(1, provider.getCallCount());
+        }
+    }
+
+    @Test
+    void testStreamExplanation() throws IOException {
+        try (JenkinsRule.WebClient client = rule.createWebClient()) {
+            URL url = new URL(rule.jenkins.getRootUrl() + build.getUrl() + "console-explain-error/streamExplanation");
+            Page page = client.getPage(new WebRequest(url, HttpMethod.POST));
+            String content = page.getWebResponse().getContentAsString();
+            // the explanation runs as a background job whose parts are relayed
+            assertTrue(content.startsWith("event: job\n"));
+            assertTrue(content.contains("event: token\ndata: {\"text\":\"Request was successful\"}\n\n"));
+            assertTrue(content.contains("event: done\n"));
+            ErrorExplanationAction action = build.getAction(ErrorExplanationAction.class);
+            assertNotNull(action);
+            assertEquals("Request was successful", action.getExplanation());
+        }
+    }
+
+    @Test
+    void testExplanationStatusUnknownJob() throws IOException {
+        try (JenkinsRule.WebClient client = rule.createWebClient()) {
+            URL url = new URL(rule.jenkins.getRootUrl() + build.getUrl() + "console-explain-error/explanationStatus?jobId=unknown");
+            Page page = client.getPage(new WebRequest(url, HttpMethod.POST));
+            JSONObject responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertEquals("error", responseJson.getString("status"));
+        }
+    }
+
     @Test
     void testCheckExistingExplanation() throws IOException {
         try (JenkinsRule.WebClient client = rule.createWebClient()) {
@@ -228,4 +286,29 @@ class ConsoleExplainErrorActionTest {
             assertEquals(2, responseJson.getInt("buildingStatus"));
         }
     }
+
+    @Test
+    void testStatusWaitsForBuildCompletion() throws Exception {
+        try (JenkinsRule.WebClient client = rule.createWebClient()) {
+            Page page = client.goTo(build.getUrl() + "console-explain-error/status", "application/json");
+            JSONObject responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertEquals(0, responseJson.getInt("buildingStatus"));
+            assertFalse(responseJson.getBoolean("hasExplanation"));
+
+            project.getBuildersList().add(new SleepBuilder(2000));
+            project.getBuildersList().add(new FailureBuilder());
+            build = project.scheduleBuild2(0).waitForStart();
+            page = client.goTo(build.getUrl() + "console-explain-error/status?wait=20", "application/json");
+            responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertEquals(2, responseJson.getInt("buildingStatus"));
+            assertFalse(build.isBuilding());
+
+            ErrorExplanationAction explanation = new ErrorExplanationAction("Test explanation", "Error logs", "Ollama");
+            build.addAction(explanation);
+            page = client.goTo(build.getUrl() + "console-explain-error/status", "application/json");
+            responseJson = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+            assertTrue(responseJson.getBoolean("hasExplanation"));
+            assertEquals(explanation.getFormattedTimestamp(), responseJson.getString("timestamp"));
+        }
+    }
 }
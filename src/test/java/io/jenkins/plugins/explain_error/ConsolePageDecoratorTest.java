@@ -2,6 +2,7 @@ package io.jenkins.plugins.explain_error;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import hudson.model.FreeStyleProject;
 import hudson.util.Secret;
 import io.jenkins.plugins.explain_error.provider.TestProvider;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,12 +13,14 @@ import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 @WithJenkins
 class ConsolePageDecoratorTest {
 
+    private JenkinsRule jenkins;
     private ConsolePageDecorator decorator;
     private GlobalConfigurationImpl config;
     private TestProvider provider;
 
     @BeforeEach
     void setUp(JenkinsRule jenkins) {
+        this.jenkins = jenkins;
         decorator = new ConsolePageDecorator();
         config = GlobalConfigurationImpl.get();
 
@@ -137,15 +140,45 @@ class ConsolePageDecoratorTest {
     }
 
     @Test
-    void testIsPluginActive() {
-        // isPluginActive should return the same as isExplainErrorEnabled
-        assertEquals(decorator.isExplainErrorEnabled(), decorator.isPluginActive());
+    void testIsPluginActive() throws Exception {
+        // outside of a request there is no console page
+        assertFalse(decorator.isPluginActive());
+
+        FreeStyleProject project = jenkins.createFreeStyleProject("test");
+        jenkins.buildAndAssertSuccess(project);
+        try (JenkinsRule.WebClient client = jenkins.createWebClient()) {
+            assertTrue(client.goTo("job/test/1/console").asXml().contains("explain-error-container"));
+            assertTrue(client.goTo("job/test/1/consoleFull").asXml().contains("explain-error-container"));
+            assertFalse(client.goTo("").asXml().contains("explain-error-container"));
+            assertFalse(client.goTo("job/test/").asXml().contains("explain-error-container"));
+
+            config.setEnableExplanation(false);
+            assertFalse(client.goTo("job/test/1/console").asXml().contains("explain-error-container"));
+        }
+    }
 
-        config.setEnableExplanation(false);
-        assertEquals(decorator.isExplainErrorEnabled(), decorator.isPluginActive());
+    @Test
+    void testIsConsolePage() {
+        assertTrue(ConsolePageDecorator.isConsolePage("/jenkins/job/test/1/console"));
+        assertTrue(ConsolePageDecorator.isConsolePage("/job/folder/job/test/lastBuild/consoleFull"));
+        assertFalse(ConsolePageDecorator.isConsolePage(null));
+        assertFalse(ConsolePageDecorator.isConsolePage("/"));
+        assertFalse(ConsolePageDecorator.isConsolePage("/job/test/"));
+        assertFalse(ConsolePageDecorator.isConsolePage("/job/test/1/consoleText"));
+        assertFalse(ConsolePageDecorator.isConsolePage("/job/test/1/error-explanation/console"));
+    }
 
-        config.setEnableExplanation(true);
-        config.setApiKey(null);
-        assertEquals(decorator.isExplainErrorEnabled(), decorator.isPluginActive());
+    @Test
+    void testProviderValidityRemembered() {
+        assertTrue(decorator.isExplainErrorEnabled());
+
+        // a provider only changes through a new configuration, which creates a new provider
+        TestProvider invalid = new TestProvider();
+        invalid.setApiKey(null);
+        config.setAiProvider(invalid);
+        assertFalse(decorator.isExplainErrorEnabled());
+
+        config.setAiProvider(provider);
+        assertTrue(decorator.isExplainErrorEnabled());
     }
 }
@@ -2,16 +2,27 @@ package io.jenkins.plugins.explain_error;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.Result;
 import hudson.model.TaskListener;
 import hudson.util.Secret;
 import io.jenkins.plugins.explain_error.provider.OpenAIProvider;
 import io.jenkins.plugins.explain_error.provider.TestProvider;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
 import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.FailureBuilder;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 @WithJenkins
@@ -95,11 +106,14 @@ class ErrorExplainerTest {
         assertEquals("No error logs provided for explanation.", e.getMessage());
 
         // Test with invalid config input
+        int calls = CircuitBreakers.get().forProvider(provider).getCalls();
         e = assertThrows(ExplanationException.class, () -> {
             provider.setApiKey(null);
             errorExplainer.explainErrorText("Build Failed", build);
         });
         assertEquals("The provider is not properly configured.", e.getMessage());
+        // a configuration error says nothing about the health of the provider
+        assertEquals(calls, CircuitBreakers.get().forProvider(provider).getCalls());
 
         // Test with request exception config input
         e = assertThrows(ExplanationException.class, () -> {
@@ -109,4 +123,202 @@ class ErrorExplainerTest {
         });
         assertEquals("API request failed: Request failed.", e.getMessage());
     }
+
+    @Test
+    void testExplanationCache(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableCache(true);
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build1 = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild build2 = jenkins.buildAndAssertSuccess(project);
+
+        errorExplainer.explainErrorText("ERROR: build #1 failed at 2025-01-02T10:11:12Z", build1);
+        provider.setAnswerMessage("Second call");
+        ErrorExplanationAction action = errorExplainer.explainErrorText("ERROR: build #2 failed at 2025-01-03T08:00:00Z", build2);
+        assertEquals("Request was successful", action.getExplanation());
+        assertEquals(1, provider.getCallCount());
+        assertEquals(1, config.getExplanationCache().getHits());
+
+        action = errorExplainer.explainErrorText("ERROR: build #2 failed at 2025-01-03T08:00:00Z", build2, true);
+        assertEquals("Second call", action.getExplanation());
+        assertEquals(2, provider.getCallCount());
+    }
+
+    @Test
+    void testFallbackProvider(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        TestProvider primary = new TestProvider();
+        primary.setThrowError(true);
+        TestProvider fallback = new TestProvider();
+        fallback.setAnswerMessage("Fallback answer");
+        config.setAiProvider(primary);
+        config.setFallbackProviders(List.of(fallback));
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        ErrorExplanationAction action = errorExplainer.explainErrorText("Build failed", build);
+        assertEquals("Fallback answer", action.getExplanation());
+        // the primary provider failed
+        assertEquals(0, primary.getCallCount());
+        assertEquals(1, fallback.getCallCount());
+    }
+
+    @Test
+    void testChunkedSummarization(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableLogCompaction(false);
+        config.setEnableChunkedSummarization(true);
+        TestProvider provider = new TestProvider();
+        // parts of 1200 characters
+        provider.setContextLength(600);
+        provider.setAnswerMessage("Explanation");
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        StringBuilder logs = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            logs.append("[ERROR] module-").append(i).append(" failed\n");
+        }
+        ErrorExplanationAction action = errorExplainer.explainErrorText(logs.toString(), build);
+        assertEquals("Explanation", action.getExplanation());
+        // three parts summarized and one request explaining the summaries
+        int parts = ChunkedExplainer.split(logs.toString(), 1200).size();
+        assertEquals(3, parts);
+        assertEquals(parts + 1, provider.getCallCount());
+
+        // logs fitting into a single request are explained at once
+        errorExplainer.explainErrorText("Build failed", build, true);
+        assertEquals(parts + 2, provider.getCallCount());
+    }
+
+    @Test
+    void testSimilarityReuse(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableSimilarityReuse(true);
+        TestProvider provider = new TestProvider();
+        provider.setAnswerMessage("Add the missing artifact to the repository.");
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild first = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild second = jenkins.buildAndAssertSuccess(project);
+
+        errorExplainer.explainErrorText("[ERROR] Could not find artifact org.acme:lib:jar:2.3.1 in central", first);
+        ErrorExplanationAction action = errorExplainer.explainErrorText(
+                "[ERROR] Could not find artifact org.acme:lib:jar:2.4.0 in central", second);
+        assertEquals("Add the missing artifact to the repository.", action.getExplanation());
+        assertEquals(first, action.getReusedFrom());
+        assertEquals(1, provider.getCallCount());
+
+        // a new explanation always asks the provider
+        action = errorExplainer.explainErrorText(
+                "[ERROR] Could not find artifact org.acme:lib:jar:2.4.0 in central", second, true);
+        assertNull(action.getReusedFrom());
+        assertEquals(2, provider.getCallCount());
+    }
+
+    @Test
+    void testSimilarityReuseNeedsTheSameReaders(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableSimilarityReuse(true);
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject secret = jenkins.createFreeStyleProject("secret");
+        FreeStyleProject open = jenkins.createFreeStyleProject("open");
+        FreeStyleBuild secretBuild = jenkins.buildAndAssertSuccess(secret);
+        FreeStyleBuild openBuild = jenkins.buildAndAssertSuccess(open);
+        jenkins.jenkins.setSecurityRealm(jenkins.createDummySecurityRealm());
+        jenkins.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().toAuthenticated()
+                .grant(Item.READ).onItems(secret).to("admin")
+                .grant(Item.READ).onItems(open).toAuthenticated());
+        errorExplainer.explainErrorText("[ERROR] Could not find artifact org.acme:lib:jar:2.3.1 in central", secretBuild);
+
+        // an automatic explanation runs as SYSTEM, which may read both jobs
+        ExplanationJobs.Job job = ExplanationJobs.get().submitAutomatic(openBuild.getExternalizableId(), j -> {
+            try {
+                ErrorExplanationAction action = errorExplainer.explainErrorText(
+                        "[ERROR] Could not find artifact org.acme:lib:jar:2.4.0 in central", openBuild);
+                j.complete("success", action.getProviderName(), action.getExplanation());
+            } catch (IOException | ExplanationException e) {
+                j.complete("error", "Test", e.getMessage());
+            }
+        });
+        job.getCompletion().get(30, TimeUnit.SECONDS);
+        assertEquals(ExplanationJobs.State.DONE, job.getState());
+        assertNull(openBuild.getAction(ErrorExplanationAction.class).getReusedFromId());
+        assertEquals(2, provider.getCallCount());
+    }
+
+    @Test
+    void testStreakReuse(JenkinsRule jenkins) throws Exception {
+        ErrorExplainer errorExplainer = new ErrorExplainer();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        config.setEnableStreakReuse(true);
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getBuildersList().add(new FailureBuilder());
+        FreeStyleBuild first = jenkins.buildAndAssertStatus(Result.FAILURE, project);
+        FreeStyleBuild second = jenkins.buildAndAssertStatus(Result.FAILURE, project);
+        FreeStyleBuild third = jenkins.buildAndAssertStatus(Result.FAILURE, project);
+
+        errorExplainer.explainErrorText("Build #1 failed at 10:15:00: connection refused", first);
+        ErrorExplanationAction action = errorExplainer.explainErrorText(
+                "Build #2 failed at 10:17:30: connection refused", second);
+        assertEquals(first, action.getReusedFrom());
+        assertEquals(1, provider.getCallCount());
+
+        // a different failure ends the streak
+        action = errorExplainer.explainErrorText("Build #3 failed: no space left on device", third);
+        assertNull(action.getReusedFrom());
+        assertEquals(2, provider.getCallCount());
+    }
+
+    @Test
+    void testMetricsAreRecorded(JenkinsRule jenkins) throws Exception {
+        ExplanationMetrics metrics = ExplanationMetrics.get();
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setEnableExplanation(true);
+        TestProvider provider = new TestProvider();
+        config.setAiProvider(provider);
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        ErrorExplainer explainer = new ErrorExplainer();
+        explainer.explainErrorText("ERROR: Build failed", build);
+
+        ExplanationMetrics.Histogram latency = metrics.getHistogram(ExplanationMetrics.PROVIDER_LATENCY + "Test.test-model");
+        assertNotNull(latency);
+        assertEquals(1, latency.getCount());
+        assertEquals(1, metrics.getHistogram(ExplanationMetrics.EXPLANATION_LATENCY).getCount());
+        assertEquals(1, metrics.getHistogram(ExplanationMetrics.QUEUE_WAIT).getCount());
+        assertEquals("ERROR: Build failed".length(), metrics.getHistogram(ExplanationMetrics.ERROR_LOG_CHARS).getMax());
+
+        assertThrows(ExplanationException.class, () -> explainer.explainErrorText("", build));
+        assertEquals(1, metrics.getCount(ExplanationMetrics.ERRORS + "warning"));
+
+        explainer.explainError(build, jenkins.createTaskListener(), null, 100);
+        assertTrue(metrics.getHistogram(ExplanationMetrics.LOG_READ).getCount() > 0);
+        assertTrue(metrics.getHistogram(ExplanationMetrics.EXTRACTION).getCount() > 0);
+    }
 }
@@ -4,6 +4,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -170,4 +174,54 @@ class ErrorExplanationActionTest {
         ErrorExplanationAction validWithWhitespaceAction = new ErrorExplanationAction("  Valid explanation  ", "Error logs", "Ollama");
         assertTrue(validWithWhitespaceAction.hasValidExplanation());
     }
+
+    @Test
+    void testPayloadStoredOutsideBuildXml(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject("test");
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        build.addAction(action);
+        build.save();
+
+        assertTrue(new File(build.getRootDir(), ErrorExplanationAction.PAYLOAD_FILE).isFile());
+        String buildXml = Files.readString(new File(build.getRootDir(), "build.xml").toPath(), StandardCharsets.UTF_8);
+        assertFalse(buildXml.contains(testExplanation));
+        assertFalse(buildXml.contains("Compilation error"));
+
+        build.reload();
+        ErrorExplanationAction loaded = build.getAction(ErrorExplanationAction.class);
+        assertNotSame(action, loaded);
+        assertTrue(loaded.hasValidExplanation());
+        assertEquals(testExplanation, loaded.getExplanation());
+        assertEquals(testErrorLogs, loaded.getOriginalErrorLogs());
+    }
+
+    @Test
+    void testMigrationOfInlinePayload(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject("test");
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        String xml = "<io.jenkins.plugins.explain__error.ErrorExplanationAction>"
+                + "<explanation>Old explanation</explanation>"
+                + "<originalErrorLogs>Old logs</originalErrorLogs>"
+                + "<timestamp>1</timestamp>"
+                + "<providerName>Ollama</providerName>"
+                + "</io.jenkins.plugins.explain__error.ErrorExplanationAction>";
+
+        ErrorExplanationAction legacy = (ErrorExplanationAction) Run.XSTREAM2.fromXML(xml);
+        assertTrue(legacy.hasValidExplanation());
+        legacy.onLoad(build);
+
+        assertTrue(new File(build.getRootDir(), ErrorExplanationAction.PAYLOAD_FILE).isFile());
+        assertEquals("Old explanation", legacy.getExplanation());
+        assertEquals("Old logs", legacy.getOriginalErrorLogs());
+        assertFalse(Run.XSTREAM2.toXML(legacy).contains("Old explanation"));
+
+        // a payload file that already exists is not written again
+        File payloadFile = new File(build.getRootDir(), ErrorExplanationAction.PAYLOAD_FILE);
+        assertTrue(payloadFile.setLastModified(1000));
+        ErrorExplanationAction reloaded = (ErrorExplanationAction) Run.XSTREAM2.fromXML(xml);
+        reloaded.onLoad(build);
+        assertEquals(1000, payloadFile.lastModified());
+        assertEquals("Old explanation", reloaded.getExplanation());
+    }
 }
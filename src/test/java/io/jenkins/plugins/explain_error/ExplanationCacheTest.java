@@ -0,0 +1,54 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class ExplanationCacheTest {
+
+    @Test
+    void testHitsAndMisses() {
+        ExplanationCache cache = new ExplanationCache(10, 60_000);
+        assertNull(cache.get("a"));
+        cache.put("a", "explanation");
+        assertEquals("explanation", cache.get("a"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        ExplanationCache cache = new ExplanationCache(2, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+        assertEquals(2, cache.getSize());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    void testExpiredEntriesAreNotReturned() {
+        ExplanationCache cache = new ExplanationCache(10, -1);
+        cache.put("a", "1");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testShrinking() {
+        ExplanationCache cache = new ExplanationCache(10, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.setLimits(1, 60_000);
+        assertEquals(1, cache.getSize());
+        assertEquals("3", cache.get("c"));
+        cache.setLimits(0, 60_000);
+        cache.put("d", "4");
+        assertEquals(0, cache.getSize());
+    }
+}
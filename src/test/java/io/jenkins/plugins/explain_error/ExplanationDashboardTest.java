@@ -0,0 +1,138 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.MockFolder;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ExplanationDashboardTest {
+
+    @Test
+    void testQuery(JenkinsRule jenkins) throws Exception {
+        MockFolder folder = jenkins.createFolder("team");
+        FreeStyleProject app = folder.createProject(FreeStyleProject.class, "app");
+        FreeStyleProject other = jenkins.createFreeStyleProject("other");
+        FreeStyleBuild first = record(jenkins, app, "connection refused", "OpenAI");
+        FreeStyleBuild second = record(jenkins, app, "no space left on device", "Ollama");
+        FreeStyleBuild third = record(jenkins, other, "connection refused", "OpenAI");
+
+        ExplanationDashboard dashboard = jenkins.jenkins.getExtensionList(ExplanationDashboard.class).get(0);
+        ExplanationDashboard.Page page = dashboard.query(null, null, null, 0, 2);
+        assertEquals(2, page.getRows().size());
+        // newest first
+        assertEquals(third.getExternalizableId(), page.getRows().get(0).getRecord().getRunId());
+        assertEquals(second.getExternalizableId(), page.getRows().get(1).getRecord().getRunId());
+        assertTrue(page.hasNext());
+        assertFalse(page.hasPrevious());
+
+        page = dashboard.query(null, null, null, 2, 2);
+        assertEquals(1, page.getRows().size());
+        assertEquals(first.getExternalizableId(), page.getRows().get(0).getRecord().getRunId());
+        assertFalse(page.hasNext());
+        assertTrue(page.hasPrevious());
+
+        assertEquals(2, dashboard.query("team", null, null, 0, 10).getRows().size());
+        assertEquals(2, dashboard.query(null, "OpenAI", null, 0, 10).getRows().size());
+        String fingerprint = FailureFingerprint.compute("connection refused");
+        page = dashboard.query("/team/", null, fingerprint.substring(0, 12), 0, 10);
+        assertEquals(1, page.getRows().size());
+        assertEquals("job/team/job/app/1/error-explanation/", page.getRows().get(0).getUrl());
+    }
+
+    @Test
+    void testJson(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject("app");
+        record(jenkins, project, "connection refused", "OpenAI");
+        record(jenkins, project, "no space left on device", "OpenAI");
+
+        JSONObject json = jenkins.getJSON("failure-explanations/api/json?size=1").getJSONObject();
+        assertTrue(json.getBoolean("more"));
+        JSONArray explanations = json.getJSONArray("explanations");
+        assertEquals(1, explanations.size());
+        JSONObject explanation = explanations.getJSONObject(0);
+        assertEquals("app", explanation.getString("job"));
+        assertEquals(2, explanation.getInt("build"));
+        assertEquals("OpenAI", explanation.getString("provider"));
+        // the text loads the build, so it is only included when asked for
+        assertFalse(explanation.has("explanation"));
+
+        json = jenkins.getJSON("failure-explanations/api/json?size=1&start=1&tree=more,explanations[build,explanation]")
+                .getJSONObject();
+        assertFalse(json.getBoolean("more"));
+        explanation = json.getJSONArray("explanations").getJSONObject(0);
+        assertEquals(1, explanation.getInt("build"));
+        assertEquals("explanation of 1", explanation.getString("explanation"));
+        assertFalse(explanation.has("provider"));
+
+        jenkins.createWebClient().goTo("failure-explanations/");
+    }
+
+    @Test
+    void testReusedFromOnlyShownWhenReadable(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject secret = jenkins.createFreeStyleProject("secret");
+        FreeStyleProject app = jenkins.createFreeStyleProject("app");
+        FreeStyleBuild source = jenkins.buildAndAssertSuccess(secret);
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(app);
+        ErrorExplanationAction action = new ErrorExplanationAction("explanation", "connection refused", "OpenAI");
+        action.setReusedFrom(source.getExternalizableId());
+        build.addOrReplaceAction(action);
+        build.save();
+        ExplanationStore.get().record(build, action, 10);
+        jenkins.jenkins.setSecurityRealm(jenkins.createDummySecurityRealm());
+        jenkins.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ, Item.READ).everywhere().to("admin")
+                .grant(Jenkins.READ).everywhere().to("reader")
+                .grant(Item.READ).onItems(app).to("reader"));
+
+        JenkinsRule.WebClient admin = jenkins.createWebClient().login("admin");
+        JSONObject explanation = admin.getJSON("failure-explanations/api/json").getJSONObject()
+                .getJSONArray("explanations").getJSONObject(0);
+        assertEquals("secret#1", explanation.getString("reusedFrom"));
+
+        JenkinsRule.WebClient reader = jenkins.createWebClient().login("reader");
+        explanation = reader.getJSON("failure-explanations/api/json").getJSONObject()
+                .getJSONArray("explanations").getJSONObject(0);
+        assertEquals("app", explanation.getString("job"));
+        assertFalse(explanation.has("reusedFrom"));
+        assertFalse(reader.goTo("failure-explanations/").asNormalizedText().contains("secret"));
+    }
+
+    @Test
+    void testRenamedJob(JenkinsRule jenkins) throws Exception {
+        MockFolder folder = jenkins.createFolder("team");
+        FreeStyleProject project = folder.createProject(FreeStyleProject.class, "app");
+        record(jenkins, project, "connection refused", "OpenAI");
+
+        project.renameTo("service");
+        folder.renameTo("group");
+        ExplanationDashboard dashboard = jenkins.jenkins.getExtensionList(ExplanationDashboard.class).get(0);
+        ExplanationDashboard.Page page = dashboard.query("group", null, null, 0, 10);
+        assertEquals(1, page.getRows().size());
+        assertEquals("group/service#1", page.getRows().get(0).getRecord().getRunId());
+        assertEquals("explanation of 1", page.getRows().get(0).getExplanation());
+        assertTrue(dashboard.query("team", null, null, 0, 10).getRows().isEmpty());
+    }
+
+    private static FreeStyleBuild record(JenkinsRule jenkins, FreeStyleProject project, String errorLogs,
+                                         String providerName) throws Exception {
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        ErrorExplanationAction action = new ErrorExplanationAction("explanation of " + build.getNumber(), errorLogs,
+                providerName);
+        build.addOrReplaceAction(action);
+        build.save();
+        ExplanationStore.get().record(build, action, 10);
+        return build;
+    }
+}
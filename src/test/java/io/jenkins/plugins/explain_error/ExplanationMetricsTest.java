@@ -0,0 +1,44 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ExplanationMetricsTest {
+
+    @Test
+    void testHistogramPercentiles() {
+        ExplanationMetrics.Histogram histogram = new ExplanationMetrics.Histogram();
+        assertEquals(0, histogram.get99thPercentile());
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMean());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50, histogram.get50thPercentile());
+        assertEquals(95, histogram.get95thPercentile());
+        assertEquals(99, histogram.get99thPercentile());
+    }
+
+    @Test
+    void testHistogramKeepsRecentSamples() {
+        ExplanationMetrics.Histogram histogram = new ExplanationMetrics.Histogram();
+        for (int i = 0; i < ExplanationMetrics.Histogram.SAMPLES; i++) {
+            histogram.update(1000);
+        }
+        for (int i = 0; i < ExplanationMetrics.Histogram.SAMPLES; i++) {
+            histogram.update(1);
+        }
+        assertEquals(2L * ExplanationMetrics.Histogram.SAMPLES, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1, histogram.get99thPercentile());
+    }
+
+    @Test
+    void testSanitize() {
+        assertEquals("OpenAI.gpt-4o", ExplanationMetrics.sanitize("OpenAI") + "." + ExplanationMetrics.sanitize("gpt-4o"));
+        assertEquals("llama3_8b", ExplanationMetrics.sanitize("llama3:8b"));
+        assertEquals("unknown", ExplanationMetrics.sanitize(null));
+    }
+}
@@ -0,0 +1,82 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ExplanationSchedulerTest {
+
+    @Test
+    void testRejectsWhenQueueIsFull(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setMaxConcurrentExplanations(1);
+        config.setMaxQueuedExplanations(0);
+        TestProvider provider = new TestProvider();
+        ExplanationScheduler scheduler = ExplanationScheduler.get();
+
+        try (ExplanationScheduler.Permit permit = scheduler.acquire(provider, TaskListener.NULL)) {
+            ExplanationException e = assertThrows(ExplanationException.class, () -> scheduler.acquire(provider, TaskListener.NULL));
+            assertEquals("warning", e.getLevel());
+            assertTrue(e.getMessage().startsWith("Too many AI explanation requests"));
+        }
+        // slot is free again
+        scheduler.acquire(provider, TaskListener.NULL).close();
+
+        ExplanationScheduler.Limiter limiter = scheduler.getLimiters().get(0);
+        assertEquals(2, limiter.getAcquired());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testShrinkingTheLimitCountsRequestsInFlight(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setMaxConcurrentExplanations(2);
+        config.setMaxQueuedExplanations(0);
+        TestProvider provider = new TestProvider();
+        ExplanationScheduler scheduler = ExplanationScheduler.get();
+
+        ExplanationScheduler.Permit first = scheduler.acquire(provider, TaskListener.NULL);
+        ExplanationScheduler.Permit second = scheduler.acquire(provider, TaskListener.NULL);
+        config.setMaxConcurrentExplanations(1);
+        assertThrows(ExplanationException.class, () -> scheduler.acquire(provider, TaskListener.NULL));
+        first.close();
+        // the second request still holds the only slot
+        assertThrows(ExplanationException.class, () -> scheduler.acquire(provider, TaskListener.NULL));
+        second.close();
+        scheduler.acquire(provider, TaskListener.NULL).close();
+
+        ExplanationScheduler.Limiter limiter = scheduler.getLimiters().get(0);
+        assertEquals(1, limiter.getMaxInFlight());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getRejected());
+    }
+
+    @Test
+    void testTimesOutWaitingForSlot(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl config = GlobalConfigurationImpl.get();
+        config.setMaxConcurrentExplanations(1);
+        config.setMaxQueuedExplanations(5);
+        config.setQueueTimeoutSeconds(0);
+        TestProvider provider = new TestProvider();
+        ExplanationScheduler scheduler = ExplanationScheduler.get();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        TaskListener listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+
+        try (ExplanationScheduler.Permit permit = scheduler.acquire(provider, TaskListener.NULL)) {
+            ExplanationException e = assertThrows(ExplanationException.class, () -> scheduler.acquire(provider, listener));
+            assertTrue(e.getMessage().startsWith("Timed out"));
+        }
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("Waiting for a free slot of Test"));
+    }
+}
@@ -0,0 +1,112 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ExplanationStoreTest {
+
+    @Test
+    void testRecordAndQuery(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject("app");
+        FreeStyleBuild first = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild second = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild third = jenkins.buildAndAssertSuccess(project);
+        ExplanationStore store = ExplanationStore.get();
+        long start = System.currentTimeMillis();
+        record(first, "Build #1 failed: connection refused", 1200);
+        record(second, "Build #2 failed: connection refused", 800);
+        record(third, "Build #3 failed: no space left on device", 500);
+
+        List<ExplanationStore.Record> records = store.getRecords(start, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(first.getExternalizableId(), records.get(0).getRunId());
+        assertTrue(store.getRecords(Long.MAX_VALUE - 1, Long.MAX_VALUE).isEmpty());
+
+        ExplanationStore.Record record = store.getRecord(second.getExternalizableId());
+        assertNotNull(record);
+        assertEquals("app", record.getJob());
+        assertEquals(2, record.getBuild());
+        assertEquals("Test", record.getProviderName());
+        assertEquals(800, record.getLatencyMillis());
+        assertEquals("explanation of 2", record.getAction().getExplanation());
+
+        // the same failure in other builds
+        List<ExplanationStore.Record> sameFailure = store.getRecords(record.getFingerprint());
+        assertEquals(2, sameFailure.size());
+        assertEquals(first.getExternalizableId(), sameFailure.get(0).getRunId());
+        assertEquals(FailureFingerprint.compute("Build #3 failed: no space left on device"),
+                store.getRecord(third.getExternalizableId()).getFingerprint());
+    }
+
+    @Test
+    void testNewestRecordsMadeAtTheSameTime(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        ErrorExplanationAction action = new ErrorExplanationAction("explanation", "BUILD FAILURE", "Test");
+        ExplanationStore store = ExplanationStore.get();
+        for (int i = 0; i < 5; i++) {
+            store.record(jenkins.buildAndAssertSuccess(project), action, 100);
+        }
+
+        // more explanations than asked for share the timestamp, all of them are returned
+        List<ExplanationStore.Record> records = store.getNewestRecords(Long.MAX_VALUE, 2);
+        assertEquals(5, records.size());
+        assertEquals(5, store.getNewestRecords(action.getTimestamp() + 1, 2).size());
+        assertTrue(store.getNewestRecords(records.get(4).getTimestamp(), 2).isEmpty());
+    }
+
+    @Test
+    void testPersistenceAndDeletion(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        record(build, "BUILD FAILURE", 100);
+        ExplanationStore store = ExplanationStore.get();
+        store.flush();
+
+        // a new instance reads the file
+        ExplanationStore.Record reloaded = new ExplanationStore().getRecord(build.getExternalizableId());
+        assertNotNull(reloaded);
+        assertEquals(100, reloaded.getLatencyMillis());
+
+        build.delete();
+        assertNull(store.getRecord(build.getExternalizableId()));
+        store.flush();
+        assertNull(new ExplanationStore().getRecord(build.getExternalizableId()));
+    }
+
+    @Test
+    void testBackfill(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        build.addOrReplaceAction(new ErrorExplanationAction("explanation", "BUILD FAILURE", "Test"));
+        build.save();
+
+        // the explanations stored in builds are added in the background
+        ExplanationStore store = ExplanationStore.get();
+        for (int i = 0; i < 100 && !store.isBackfilled(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(store.isBackfilled());
+        assertNotNull(store.getRecord(build.getExternalizableId()));
+
+        // a new instance is only filled again when the marker was not written
+        store.flush();
+        assertTrue(new ExplanationStore().isBackfilled());
+    }
+
+    private static void record(FreeStyleBuild build, String errorLogs, long latencyMillis) throws Exception {
+        ErrorExplanationAction action = new ErrorExplanationAction("explanation of " + build.getNumber(), errorLogs, "Test");
+        build.addOrReplaceAction(action);
+        build.save();
+        ExplanationStore.get().record(build, action, latencyMillis);
+    }
+}
@@ -0,0 +1,79 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class FailedStepsLogReaderTest {
+
+    private static final String PARALLEL_PIPELINE = "parallel(\n"
+            + "  frontend: {\n"
+            + "    for (int i = 0; i < 200; i++) { echo \"frontend noise ${i}\" }\n"
+            + "  },\n"
+            + "  backend: {\n"
+            + "    stage('Compile') {\n"
+            + "      echo 'Compiling module backend'\n"
+            + "      catchError(buildResult: 'FAILURE') {\n"
+            + "        error 'compilation of Backend.java failed'\n"
+            + "      }\n"
+            + "    }\n"
+            + "  }\n"
+            + ")\n";
+
+    @Test
+    void testReadsOnlyFailedBranch(JenkinsRule jenkins) throws Exception {
+        WorkflowJob job = jenkins.createProject(WorkflowJob.class, "parallel");
+        job.setDefinition(new CpsFlowDefinition(PARALLEL_PIPELINE, true));
+        WorkflowRun run = jenkins.assertBuildStatus(Result.FAILURE, job.scheduleBuild2(0));
+
+        String logs = FailedStepsLogReader.read(run, 100);
+        assertNotNull(logs);
+        assertTrue(logs.contains("compilation of Backend.java failed"), logs);
+        assertTrue(logs.contains("Compiling module backend"), logs);
+        assertTrue(logs.contains("Compile"), logs);
+        assertFalse(logs.contains("frontend noise"), logs);
+    }
+
+    @Test
+    void testNoFailedStep(JenkinsRule jenkins) throws Exception {
+        WorkflowJob job = jenkins.createProject(WorkflowJob.class, "passing");
+        job.setDefinition(new CpsFlowDefinition("echo 'all good'", true));
+        WorkflowRun run = jenkins.buildAndAssertSuccess(job);
+
+        assertNull(FailedStepsLogReader.read(run, 100));
+    }
+
+    @Test
+    void testNotAPipeline(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        assertNull(FailedStepsLogReader.read(build, 100));
+    }
+
+    @Test
+    void testExplainErrorStepWithFailedStepsOnly(JenkinsRule jenkins) throws Exception {
+        GlobalConfigurationImpl.get().setAiProvider(new TestProvider());
+        WorkflowJob job = jenkins.createProject(WorkflowJob.class, "explained");
+        job.setDefinition(new CpsFlowDefinition(PARALLEL_PIPELINE + "explainError failedStepsOnly: true\n", true));
+        WorkflowRun run = jenkins.assertBuildStatus(Result.FAILURE, job.scheduleBuild2(0));
+
+        ErrorExplanationAction action = run.getAction(ErrorExplanationAction.class);
+        assertNotNull(action);
+        assertTrue(action.getOriginalErrorLogs().contains("compilation of Backend.java failed"));
+        assertFalse(action.getOriginalErrorLogs().contains("frontend noise"));
+    }
+}
@@ -0,0 +1,58 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class FailureFingerprintTest {
+
+    @Test
+    void testNormalizeMasksVariableParts() {
+        assertEquals("<TIMESTAMP> ERROR: build #<N> failed after <DURATION>",
+                FailureFingerprint.normalize("2025-01-02T10:11:12.345Z ERROR: build #42 failed after 15s"));
+        assertEquals("Connection refused: localhost:<PORT>",
+                FailureFingerprint.normalize("Connection refused: localhost:45123"));
+        assertEquals("Cannot read <TMP>",
+                FailureFingerprint.normalize("Cannot read /tmp/junit12345/file.txt"));
+        assertEquals("HEAD is now at <HASH>",
+                FailureFingerprint.normalize("HEAD is now at 3f2a9c1b7d"));
+    }
+
+    @Test
+    void testNormalizeMasksOnlyPortsOfHosts() {
+        assertEquals("GET http://nexus:<PORT>/repo failed, 10.0.0.7:<PORT> and [::1]:<PORT> refused",
+                FailureFingerprint.normalize("GET http://nexus:8081/repo failed, 10.0.0.7:5432 and [::1]:8080 refused"));
+        assertEquals("Cannot connect to db.example.com:<PORT>",
+                FailureFingerprint.normalize("Cannot connect to db.example.com:5432"));
+        assertNotEquals(FailureFingerprint.normalize("[ERROR] src/main/java/Foo.java:[12,5] cannot find symbol\nFoo.java:12"),
+                FailureFingerprint.normalize("[ERROR] src/main/java/Foo.java:[40,5] cannot find symbol\nFoo.java:40"));
+        assertEquals("at com.example.Foo.bar(Foo.java:123)",
+                FailureFingerprint.normalize("at com.example.Foo.bar(Foo.java:123)"));
+        assertEquals("main.c:42: error: expected ';'", FailureFingerprint.normalize("main.c:42: error: expected ';'"));
+    }
+
+    @Test
+    void testNormalizeKeepsExitCodes() {
+        assertNotEquals(FailureFingerprint.normalize("script returned exit code 1"),
+                FailureFingerprint.normalize("script returned exit code 137"));
+    }
+
+    @Test
+    void testSameFailureInDifferentBuilds() {
+        String first = "[2025-01-02 10:11:12] ERROR: Tests failed in build #12\n"
+                + "Checked out revision 0a1b2c3d4e5f\n";
+        String second = "[2025-01-03 22:01:59] ERROR: Tests failed in build #13\n"
+                + "Checked out revision 9f8e7d6c5b4a\n";
+        assertEquals(FailureFingerprint.compute("OpenAI", "gpt-4.1", first),
+                FailureFingerprint.compute("OpenAI", "gpt-4.1", second));
+    }
+
+    @Test
+    void testProviderAndModelArePartOfFingerprint() {
+        String logs = "ERROR: failed";
+        String fingerprint = FailureFingerprint.compute("OpenAI", "gpt-4.1", logs);
+        assertNotEquals(fingerprint, FailureFingerprint.compute("OpenAI", "gpt-5", logs));
+        assertNotEquals(fingerprint, FailureFingerprint.compute("Ollama", "gpt-4.1", logs));
+    }
+}
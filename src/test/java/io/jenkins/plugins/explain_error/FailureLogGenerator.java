@@ -0,0 +1,128 @@
+package io.jenkins.plugins.explain_error;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates build logs of a given size that end in a typical Maven, Gradle or npm failure, for benchmarks.
+ */
+final class FailureLogGenerator {
+
+    enum Kind {
+        MAVEN, GRADLE, NPM
+    }
+
+    private FailureLogGenerator() {
+    }
+
+    /**
+     * Write a log of about the given size.
+     * @param kind the build tool whose output is imitated
+     * @param file the file to write
+     * @param sizeBytes the size of the log
+     */
+    static void write(Kind kind, Path file, long sizeBytes) throws IOException {
+        Random random = new Random(42);
+        String failure = failure(kind);
+        long bodyBytes = Math.max(0, sizeBytes - failure.length());
+        long written = 0;
+        int line = 0;
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            while (written < bodyBytes) {
+                String text = progressLine(kind, random, line++) + "\n";
+                writer.write(text);
+                written += text.length();
+            }
+            writer.write(failure);
+        }
+    }
+
+    /**
+     * Write a gzip compressed copy of a log, like the ones kept by the compress-buildlog plugin.
+     */
+    static void gzip(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 1 << 16)) {
+            in.transferTo(out);
+        }
+    }
+
+    private static String progressLine(Kind kind, Random random, int line) {
+        return switch (kind) {
+            case GRADLE -> switch (line % 4) {
+                case 0 -> "> Task :module" + random.nextInt(200) + ":compileJava";
+                case 1 -> "> Task :module" + random.nextInt(200) + ":processResources UP-TO-DATE";
+                case 2 -> "> Task :module" + random.nextInt(200) + ":test";
+                default -> "com.example.Module" + random.nextInt(1000) + "Test > testCase" + random.nextInt(50)
+                        + "() PASSED";
+            };
+            case NPM -> switch (line % 4) {
+                case 0 -> "npm http fetch GET 200 https://registry.npmjs.org/package-" + random.nextInt(5000)
+                        + " " + random.nextInt(900) + "ms (cache hit)";
+                case 1 -> "  \u2713 renders component " + random.nextInt(1000) + " (" + random.nextInt(50) + " ms)";
+                case 2 -> "webpack compiled chunk " + random.nextInt(300) + " [emitted]";
+                default -> "[" + line + "] added " + random.nextInt(20) + " packages in " + random.nextInt(10) + "s";
+            };
+            case MAVEN -> switch (line % 4) {
+                case 0 -> "[INFO] Downloaded from central: https://repo.maven.apache.org/maven2/org/example/lib"
+                        + random.nextInt(5000) + "/1." + random.nextInt(20) + "/lib.jar (" + random.nextInt(900)
+                        + " kB at " + random.nextInt(9000) + " kB/s)";
+                case 1 -> "[INFO] Compiling " + random.nextInt(300) + " source files with javac [debug release 17]";
+                case 2 -> "[INFO] Tests run: " + random.nextInt(100) + ", Failures: 0, Errors: 0, Skipped: 0, "
+                        + "Time elapsed: 0." + random.nextInt(999) + " s - in com.example.Module"
+                        + random.nextInt(1000) + "Test";
+                default -> "[INFO] --- surefire:3.2.5:test (default-test) @ module-" + random.nextInt(200) + " ---";
+            };
+        };
+    }
+
+    private static String failure(Kind kind) {
+        StringBuilder sb = new StringBuilder();
+        switch (kind) {
+            case GRADLE -> {
+                sb.append("> Task :app:test FAILED\n\n");
+                sb.append("com.example.AppTest > testStartup() FAILED\n");
+                sb.append("    java.lang.IllegalStateException: Failed to load ApplicationContext\n");
+                appendJavaFrames(sb, "        at ");
+                sb.append("\nFAILURE: Build failed with an exception.\n\n* What went wrong:\n");
+                sb.append("Execution failed for task ':app:test'.\n> There were failing tests.\n\n");
+                sb.append("BUILD FAILED in 3m 12s\n");
+            }
+            case NPM -> {
+                sb.append("ERROR in ./src/index.ts 12:7-30\n");
+                sb.append("Module not found: Error: Can't resolve './components/Header' in '/workspace/src'\n");
+                sb.append("npm ERR! code ELIFECYCLE\nnpm ERR! errno 1\n");
+                sb.append("npm ERR! app@1.0.0 build: `webpack --mode production`\nnpm ERR! Exit status 1\n");
+                sb.append("npm ERR! A complete log of this run can be found in:\n");
+                sb.append("npm ERR!     /home/jenkins/.npm/_logs/2025-01-02T10_11_12_000Z-debug.log\n");
+            }
+            case MAVEN -> {
+                sb.append("[ERROR] Tests run: 12, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 2.1 s <<< FAILURE!"
+                        + " - in com.example.AppTest\n");
+                sb.append("[ERROR] testStartup(com.example.AppTest)  Time elapsed: 0.4 s  <<< FAILURE!\n");
+                sb.append("java.lang.AssertionError: expected:<200> but was:<500>\n");
+                appendJavaFrames(sb, "\tat ");
+                sb.append("[INFO] BUILD FAILURE\n");
+                sb.append("[ERROR] Failed to execute goal org.apache.maven.plugins:maven-surefire-plugin:3.2.5:test"
+                        + " (default-test) on project app: There are test failures.\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendJavaFrames(StringBuilder sb, String prefix) {
+        sb.append(prefix).append("com.example.AppTest.testStartup(AppTest.java:42)\n");
+        for (int i = 0; i < 40; i++) {
+            sb.append(prefix).append("org.junit.platform.engine.support.hierarchical.NodeTestTask.executeRecursively")
+                    .append("(NodeTestTask.java:").append(100 + i).append(")\n");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LogCompactorTest {
+
+    @Test
+    void testRemovesAnsiCodesAndTimestamps() {
+        assertEquals("ERROR: compilation failed",
+                LogCompactor.compact("\u001B[31m[2025-01-02T10:11:12.123Z] ERROR: compilation failed\u001B[0m"));
+        assertEquals("BUILD FAILURE", LogCompactor.compact("10:11:12  BUILD FAILURE"));
+    }
+
+    @Test
+    void testCollapsesIdenticalLines() {
+        String logs = "Retrying...\nRetrying...\nRetrying...\nRetrying...\nGave up";
+        assertEquals("Retrying...\n[... 3 identical lines omitted ...]\nGave up", LogCompactor.compact(logs));
+    }
+
+    @Test
+    void testCollapsesSimilarLines() {
+        StringBuilder logs = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            logs.append("Progress (1): ").append(i).append(" kB\n");
+        }
+        logs.append("ERROR: download failed");
+        assertEquals("Progress (1): 1 kB\n[... 98 similar lines omitted ...]\nProgress (1): 100 kB\nERROR: download failed",
+                LogCompactor.compact(logs.toString()));
+    }
+
+    @Test
+    void testKeepsShortRepeats() {
+        assertEquals("a\na\nb", LogCompactor.compact("a\na\nb"));
+        assertEquals("a\n\nb", LogCompactor.compact("a\n\n\n\nb"));
+    }
+
+    @Test
+    void testFoldsJavaStackTrace() {
+        StringBuilder logs = new StringBuilder("java.lang.IllegalStateException: broken\n");
+        logs.append("\tat com.example.Service.call(Service.java:42)\n");
+        for (int i = 0; i < 20; i++) {
+            logs.append("\tat org.junit.platform.Engine.execute").append(i).append("(Engine.java:").append(i).append(")\n");
+        }
+        logs.append("\tat com.example.Main.main(Main.java:7)");
+        String compacted = LogCompactor.compact(logs.toString());
+        assertTrue(compacted.contains("com.example.Service.call"));
+        assertTrue(compacted.contains("com.example.Main.main"));
+        assertTrue(compacted.contains("... 18 framework frames omitted"));
+        assertFalse(compacted.contains("execute10"));
+    }
+
+    @Test
+    void testFoldsPythonTraceback() {
+        StringBuilder logs = new StringBuilder("Traceback (most recent call last):\n");
+        for (int i = 0; i < 12; i++) {
+            logs.append("  File \"module").append(i).append(".py\", line ").append(i).append(", in f").append(i).append('\n');
+            logs.append("    f").append(i + 1).append("()\n");
+        }
+        logs.append("ValueError: invalid literal");
+        String compacted = LogCompactor.compact(logs.toString());
+        assertTrue(compacted.contains("module0.py"));
+        assertTrue(compacted.contains("... 7 frames omitted"));
+        assertFalse(compacted.contains("module5.py"));
+        assertTrue(compacted.contains("module11.py"));
+        assertTrue(compacted.endsWith("ValueError: invalid literal"));
+    }
+}
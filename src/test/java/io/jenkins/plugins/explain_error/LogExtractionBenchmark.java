@@ -0,0 +1,124 @@
+package io.jenkins.plugins.explain_error;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of the ways error logs are extracted from build logs of different sizes.
+ */
+@JmhBenchmark
+public class LogExtractionBenchmark {
+
+    static final int MAX_LINES = 100;
+    static final Pattern ERROR_PATTERN = Pattern.compile("ERROR|FAILED|FAILURE|Exception", Pattern.CASE_INSENSITIVE);
+
+    @State(Scope.Benchmark)
+    public static class Logs {
+        @Param({"MAVEN", "GRADLE", "NPM"})
+        public FailureLogGenerator.Kind kind;
+
+        /**
+         * Size of the generated log in MB, overridden by {@code -Dbenchmark.logSizes}.
+         */
+        @Param({"1", "64", "512"})
+        public int sizeMb;
+
+        Path dir;
+        Path log;
+        Path gzipLog;
+        String tail;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("explain-error-benchmark");
+            log = dir.resolve("log");
+            gzipLog = dir.resolve("log.gz");
+            FailureLogGenerator.write(kind, log, sizeMb * 1024L * 1024L);
+            FailureLogGenerator.gzip(log, gzipLog);
+            tail = readTail(log);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public String tail(Logs logs) throws IOException {
+        return readTail(logs.log);
+    }
+
+    @Benchmark
+    public String tailOfCompressedLog(Logs logs) throws IOException {
+        return readTail(logs.gzipLog);
+    }
+
+    /**
+     * Pattern mode, filtering the tail like {@code ErrorExplainer#extractErrorLogs}.
+     */
+    @Benchmark
+    public String pattern(Logs logs) throws IOException {
+        StringBuilder errorLogs = new StringBuilder();
+        LogTailReader.forEachTailLine(logs.log.toFile(), StandardCharsets.UTF_8, MAX_LINES, LogTailReader.MAX_BYTES, line -> {
+            if (ERROR_PATTERN.matcher(line).find()) {
+                errorLogs.append(line).append("\n");
+            }
+        });
+        return errorLogs.toString();
+    }
+
+    /**
+     * Reading the whole log and keeping the last lines, like {@code Run#getLog(int)}, as a baseline for the tail
+     * reader.
+     */
+    @Benchmark
+    public Deque<String> fullRead(Logs logs) throws IOException {
+        Deque<String> lines = new ArrayDeque<>(MAX_LINES + 1);
+        try (BufferedReader reader = Files.newBufferedReader(logs.log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.addLast(line);
+                if (lines.size() > MAX_LINES) {
+                    lines.removeFirst();
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public String compaction(Logs logs) {
+        return LogCompactor.compact(logs.tail);
+    }
+
+    @Benchmark
+    public String fingerprint(Logs logs) {
+        return FailureFingerprint.compute("OpenAI", "gpt-4", logs.tail);
+    }
+
+    private static String readTail(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        LogTailReader.forEachTailLine(file.toFile(), StandardCharsets.UTF_8, MAX_LINES, LogTailReader.MAX_BYTES,
+                line -> sb.append(line).append('\n'));
+        return sb.toString();
+    }
+}
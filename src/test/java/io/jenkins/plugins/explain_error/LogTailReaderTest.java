@@ -0,0 +1,124 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.console.AnnotatedLargeText;
+import hudson.console.HyperlinkNote;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogTailReaderTest {
+
+    @TempDir
+    File tempDir;
+
+    private File writeLog(String name, int lines) throws IOException {
+        File log = new File(tempDir, name);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= lines; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        Files.writeString(log.toPath(), sb.toString(), StandardCharsets.UTF_8);
+        return log;
+    }
+
+    private List<String> tail(File log, int maxLines, int maxBytes) throws IOException {
+        List<String> lines = new ArrayList<>();
+        LogTailReader.forEachTailLine(log, StandardCharsets.UTF_8, maxLines, maxBytes, lines::add);
+        return lines;
+    }
+
+    @Test
+    void testReadsLastLines() throws IOException {
+        File log = writeLog("log", 10000);
+        List<String> lines = tail(log, 3, 1024 * 1024);
+        assertEquals(List.of("line 9998", "line 9999", "line 10000"), lines);
+    }
+
+    @Test
+    void testShortLog() throws IOException {
+        File log = writeLog("log", 2);
+        assertEquals(List.of("line 1", "line 2"), tail(log, 100, 1024 * 1024));
+    }
+
+    @Test
+    void testEmptyLog() throws IOException {
+        File log = writeLog("log", 0);
+        assertEquals(List.of(), tail(log, 100, 1024 * 1024));
+    }
+
+    @Test
+    void testByteBudgetDropsPartialLine() throws IOException {
+        File log = writeLog("log", 100);
+        // "line 100\n" is 9 bytes, "line 99\n" is 8 bytes, the budget of 20 ends in the middle of "line 98"
+        assertEquals(List.of("line 99", "line 100"), tail(log, 100, 20));
+    }
+
+    @Test
+    void testLineLongerThanByteBudget() throws IOException {
+        File log = new File(tempDir, "log");
+        int budget = 1024 * 1024;
+        Files.writeString(log.toPath(), "{\"error\":\"" + "x".repeat(2 * budget) + "\"}\n", StandardCharsets.UTF_8);
+        // the end of the line is kept rather than nothing
+        List<String> lines = tail(log, 100, budget);
+        assertEquals(1, lines.size());
+        assertEquals(budget - 1, lines.get(0).length());
+        assertTrue(lines.get(0).endsWith("x\"}"));
+
+        AnnotatedLargeText<Void> text = new AnnotatedLargeText<>(log, StandardCharsets.UTF_8, true, null);
+        lines.clear();
+        LogTailReader.forEachTailLine(text, StandardCharsets.UTF_8, 100, budget, lines::add);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).endsWith("x\"}"));
+    }
+
+    @Test
+    void testLinesAcrossBlocks() throws IOException {
+        File log = new File(tempDir, "log");
+        String longLine = "x".repeat(LogTailReader.BLOCK_SIZE * 2);
+        Files.writeString(log.toPath(), "first\n" + longLine + "\nlast\n", StandardCharsets.UTF_8);
+        assertEquals(List.of(longLine, "last"), tail(log, 2, 1024 * 1024));
+        assertEquals(List.of("first", longLine, "last"), tail(log, 5, 1024 * 1024));
+    }
+
+    @Test
+    void testConsoleNotesRemoved() throws IOException {
+        File log = new File(tempDir, "log");
+        String note = HyperlinkNote.encodeTo("/job/test", "test");
+        Files.writeString(log.toPath(), "Started by " + note + "\r\nERROR: failed\n", StandardCharsets.UTF_8);
+        assertEquals(List.of("Started by test", "ERROR: failed"), tail(log, 10, 1024 * 1024));
+    }
+
+    @Test
+    void testCompressedLog() throws IOException {
+        File log = new File(tempDir, "log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log.toPath()))) {
+            for (int i = 1; i <= 1000; i++) {
+                out.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of("line 999", "line 1000"), tail(log, 2, 1024 * 1024));
+    }
+
+    @Test
+    void testLogText() throws IOException {
+        File log = writeLog("log", 100);
+        AnnotatedLargeText<Void> text = new AnnotatedLargeText<>(log, StandardCharsets.UTF_8, true, null);
+        List<String> lines = new ArrayList<>();
+        LogTailReader.forEachTailLine(text, StandardCharsets.UTF_8, 2, 1024 * 1024, lines::add);
+        assertEquals(List.of("line 99", "line 100"), lines);
+
+        lines.clear();
+        LogTailReader.forEachTailLine(text, StandardCharsets.UTF_8, 100, 20, lines::add);
+        assertEquals(List.of("line 99", "line 100"), lines);
+    }
+}
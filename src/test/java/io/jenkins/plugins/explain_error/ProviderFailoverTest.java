@@ -0,0 +1,133 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import io.jenkins.plugins.explain_error.provider.BaseAIProvider;
+import io.jenkins.plugins.explain_error.provider.TestProvider;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ProviderFailoverTest {
+
+    private final TestProvider primary = new TestProvider();
+    private final TestProvider secondary = new TestProvider();
+    private final TestProvider tertiary = new TestProvider();
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private TaskListener listener;
+
+    @BeforeEach
+    void setUp(JenkinsRule jenkins) {
+        listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testPrimaryAnswers() throws Exception {
+        List<BaseAIProvider> asked = Collections.synchronizedList(new ArrayList<>());
+        ProviderFailover.Answer answer = ProviderFailover.explain(List.of(primary, secondary), 0, listener, null,
+                (provider, consumer) -> {
+                    asked.add(provider);
+                    return "answer";
+                });
+        assertEquals("answer", answer.explanation);
+        assertEquals(List.of(primary), asked);
+    }
+
+    @Test
+    void testFailover() throws Exception {
+        List<BaseAIProvider> asked = Collections.synchronizedList(new ArrayList<>());
+        ProviderFailover.Answer answer = ProviderFailover.explain(List.of(primary, secondary, tertiary), 0, listener, null,
+                (provider, consumer) -> {
+                    asked.add(provider);
+                    if (provider != tertiary) {
+                        throw new ExplanationException("error", "API request failed: down");
+                    }
+                    return "answer";
+                });
+        assertEquals("answer", answer.explanation);
+        assertEquals(List.of(primary, secondary, tertiary), asked);
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("Asking the fallback provider Test after: API request failed: down"));
+    }
+
+    @Test
+    void testAllProvidersFail() {
+        ExplanationException e = assertThrows(ExplanationException.class, () ->
+                ProviderFailover.explain(List.of(primary, secondary), 0, listener, null, (provider, consumer) -> {
+                    throw new ExplanationException("error", provider == primary ? "first" : "second");
+                }));
+        assertEquals("second", e.getMessage());
+    }
+
+    @Test
+    void testNoFailoverAfterStreamingStarted() {
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+        assertThrows(ExplanationException.class, () ->
+                ProviderFailover.explain(List.of(primary, secondary), 0, listener, tokens::add, (provider, consumer) -> {
+                    consumer.accept("partial");
+                    throw new ExplanationException("error", "API request failed: connection reset");
+                }));
+        assertEquals(List.of("partial"), tokens);
+    }
+
+    @Test
+    void testHedgedRequestWins() throws Exception {
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+        ProviderFailover.Answer answer = ProviderFailover.explain(List.of(primary, secondary), 100, listener, tokens::add,
+                (provider, consumer) -> {
+                    if (provider == primary) {
+                        try {
+                            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                        } catch (InterruptedException e) {
+                            primaryCancelled.countDown();
+                            throw new ExplanationException("error", "API request was interrupted.", e);
+                        }
+                        consumer.accept("slow");
+                        return "slow";
+                    }
+                    consumer.accept("fast");
+                    return "fast";
+                });
+        assertEquals("fast", answer.explanation);
+        assertEquals(List.of("fast"), tokens);
+        assertTrue(primaryCancelled.await(10, TimeUnit.SECONDS));
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("asking Test as well"));
+    }
+
+    @Test
+    void testHedgingNotNeeded() throws Exception {
+        List<BaseAIProvider> asked = Collections.synchronizedList(new ArrayList<>());
+        ProviderFailover.Answer answer = ProviderFailover.explain(List.of(primary, secondary), 10_000, listener, null,
+                (provider, consumer) -> {
+                    asked.add(provider);
+                    return "answer";
+                });
+        assertEquals("answer", answer.explanation);
+        assertEquals(List.of(primary), asked);
+    }
+
+    @Test
+    void testHedgedPrimaryFailsFast() throws Exception {
+        ProviderFailover.Answer answer = ProviderFailover.explain(List.of(primary, secondary, tertiary), 10_000, listener,
+                null, (provider, consumer) -> {
+                    if (provider == primary) {
+                        throw new ExplanationException("error", "API request failed: down");
+                    }
+                    return provider == secondary ? "secondary" : "tertiary";
+                });
+        assertEquals("secondary", answer.explanation);
+    }
+}
@@ -0,0 +1,93 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.langchain4j.exception.RateLimitException;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class RateLimitersTest {
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private final TaskListener listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+
+    @Test
+    void testParseRetryHint() {
+        assertEquals(20_000, RateLimiters.parseRetryHint("Rate limit reached for gpt-4o. Please try again in 20s."));
+        assertEquals(1_500, RateLimiters.parseRetryHint("Please try again in 1.5s. Visit https://platform.openai.com"));
+        assertEquals(120, RateLimiters.parseRetryHint("Please try again in 120ms."));
+        assertEquals(360_000, RateLimiters.parseRetryHint("Please try again in 6m0s."));
+        assertEquals(20_000, RateLimiters.parseRetryHint("Rate limit is exceeded. Please retry after 20 seconds."));
+        assertEquals(41_000, RateLimiters.parseRetryHint("{\"@type\": \"RetryInfo\", \"retryDelay\": \"41s\"}"));
+        assertEquals(-1, RateLimiters.parseRetryHint("Connection refused"));
+        assertEquals(-1, RateLimiters.parseRetryHint(null));
+    }
+
+    @Test
+    void testRetryAfterOnlyForRateLimits() {
+        ExplanationException rateLimited = new ExplanationException("error", "API request failed: limit",
+                new RateLimitException("Rate limit reached. Please try again in 3s."));
+        assertEquals(3_000, RateLimiters.getRetryAfterMillis(rateLimited));
+
+        ExplanationException withoutHint = new ExplanationException("error", "API request failed: limit",
+                new RateLimitException("Too many requests"));
+        assertEquals(RateLimiters.DEFAULT_RETRY_AFTER_MILLIS, RateLimiters.getRetryAfterMillis(withoutHint));
+
+        ExplanationException other = new ExplanationException("error", "API request failed: try again in 3s",
+                new RuntimeException("Connection refused"));
+        assertEquals(-1, RateLimiters.getRetryAfterMillis(other));
+    }
+
+    @Test
+    void testUnlimited() throws Exception {
+        RateLimiters.RateLimiter limiter = new RateLimiters.RateLimiter("Test");
+        limiter.setLimits(0, 0);
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(100_000, System.currentTimeMillis(), listener);
+        }
+        assertEquals(0, limiter.getThrottled());
+    }
+
+    @Test
+    void testRequestsPerMinute() throws Exception {
+        RateLimiters.RateLimiter limiter = new RateLimiters.RateLimiter("Test");
+        limiter.setLimits(600, 0);
+        long deadline = System.currentTimeMillis() + 10_000;
+        // the full budget is available at once
+        for (int i = 0; i < 600; i++) {
+            limiter.acquire(1, deadline, listener);
+        }
+        assertEquals(0, limiter.getThrottled());
+
+        // then one request every 100 ms
+        long start = System.nanoTime();
+        limiter.acquire(1, deadline, listener);
+        assertTrue(System.nanoTime() - start >= 50_000_000);
+        assertEquals(1, limiter.getThrottled());
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("for the rate limit of Test"));
+    }
+
+    @Test
+    void testTokensPerMinute() throws Exception {
+        RateLimiters.RateLimiter limiter = new RateLimiters.RateLimiter("Test");
+        limiter.setLimits(0, 1000);
+        limiter.acquire(1000, System.currentTimeMillis(), listener);
+        ExplanationException e = assertThrows(ExplanationException.class,
+                () -> limiter.acquire(500, System.currentTimeMillis() + 1000, listener));
+        assertEquals("warning", e.getLevel());
+    }
+
+    @Test
+    void testBackOff() {
+        RateLimiters.RateLimiter limiter = new RateLimiters.RateLimiter("Test");
+        limiter.setLimits(0, 0);
+        limiter.backOff(60_000);
+        assertThrows(ExplanationException.class, () -> limiter.acquire(1, System.currentTimeMillis() + 1000, listener));
+        assertEquals(1, limiter.getRateLimitErrors());
+    }
+}
@@ -0,0 +1,124 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class SimilarityIndexTest {
+
+    private static final String DEPENDENCY_ERROR = "[INFO] Building app %1$s\n"
+            + "[ERROR] Failed to execute goal on project app: Could not resolve dependencies for project "
+            + "com.example:app:jar:%1$s-SNAPSHOT: Could not find artifact org.acme:lib:jar:%2$s in central "
+            + "(https://repo.maven.apache.org/maven2)\n"
+            + "[ERROR] -> [Help 1]\n"
+            + "BUILD FAILURE";
+
+    private static final String COMPILATION_ERROR = "[ERROR] COMPILATION ERROR :\n"
+            + "[ERROR] /src/main/java/com/example/App.java:[12,8] cannot find symbol\n"
+            + "  symbol:   class Foo\n"
+            + "  location: class com.example.App\n"
+            + "BUILD FAILURE";
+
+    @Test
+    void testVectors(JenkinsRule jenkins) {
+        float[] first = LogEmbeddingModel.vector(String.format(DEPENDENCY_ERROR, "1.0", "2.3.1"));
+        float[] second = LogEmbeddingModel.vector(String.format(DEPENDENCY_ERROR, "1.1", "2.4.0"));
+        float[] other = LogEmbeddingModel.vector(COMPILATION_ERROR);
+        assertNotNull(first);
+        assertEquals(LogEmbeddingModel.DIMENSIONS, first.length);
+        assertTrue(LogEmbeddingModel.similarity(first, second) > 0.99);
+        assertTrue(LogEmbeddingModel.similarity(first, other) < 0.5);
+        assertNull(LogEmbeddingModel.vector("12:00 1.2.3 ---"));
+    }
+
+    @Test
+    void testFindSimilar(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild dependency = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild compilation = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild target = jenkins.buildAndAssertSuccess(jenkins.createFreeStyleProject());
+        addExplanation(dependency, String.format(DEPENDENCY_ERROR, "1.0", "2.3.1"));
+        addExplanation(compilation, COMPILATION_ERROR);
+
+        SimilarityIndex index = SimilarityIndex.get();
+        SimilarityIndex.Match match = index.findSimilar(String.format(DEPENDENCY_ERROR, "1.1", "2.4.0"), 0.9, target);
+        assertNotNull(match);
+        assertEquals(dependency.getExternalizableId(), match.getRunId());
+        assertEquals("explanation of " + dependency.getNumber(), match.getAction().getExplanation());
+
+        // a run is not similar to itself
+        assertNull(index.findSimilar(String.format(DEPENDENCY_ERROR, "1.1", "2.4.0"), 0.9, dependency));
+        assertNull(index.findSimilar("npm ERR! code ERESOLVE unable to resolve dependency tree", 0.9, target));
+    }
+
+    @Test
+    void testFindSimilarOnlyReturnsRunsReadableByAllReaders(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject secret = jenkins.createFreeStyleProject("secret");
+        FreeStyleProject shared = jenkins.createFreeStyleProject("shared");
+        FreeStyleProject open = jenkins.createFreeStyleProject("open");
+        FreeStyleBuild secretBuild = jenkins.buildAndAssertSuccess(secret);
+        FreeStyleBuild nextSecretBuild = jenkins.buildAndAssertSuccess(secret);
+        FreeStyleBuild openBuild = jenkins.buildAndAssertSuccess(open);
+        addExplanation(secretBuild, COMPILATION_ERROR);
+        jenkins.jenkins.setSecurityRealm(jenkins.createDummySecurityRealm());
+        jenkins.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().toAuthenticated()
+                .grant(Item.READ).onItems(secret).to("reader")
+                .grant(Item.READ).onItems(open).to("reader", "stranger"));
+
+        SimilarityIndex index = SimilarityIndex.get();
+        // not even for a reader of both jobs or for SYSTEM, as others read the explanation as well
+        try (ACLContext ignored = ACL.as2(User.getById("reader", true).impersonate2())) {
+            assertNull(index.findSimilar(COMPILATION_ERROR, 0.9, openBuild));
+        }
+        assertNull(index.findSimilar(COMPILATION_ERROR, 0.9, openBuild));
+        // the readers of the same job are the same
+        assertNotNull(index.findSimilar(COMPILATION_ERROR, 0.9, nextSecretBuild));
+
+        FreeStyleBuild sharedBuild = jenkins.buildAndAssertSuccess(shared);
+        addExplanation(sharedBuild, COMPILATION_ERROR);
+        jenkins.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().toAuthenticated()
+                .grant(Item.READ).onItems(shared).toAuthenticated()
+                .grant(Item.READ).onItems(open).to("reader", "stranger"));
+        SimilarityIndex.Match match = index.findSimilar(COMPILATION_ERROR, 0.9, openBuild);
+        assertNotNull(match);
+        assertEquals(sharedBuild.getExternalizableId(), match.getRunId());
+    }
+
+    @Test
+    void testPersistenceAndDeletion(JenkinsRule jenkins) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        FreeStyleBuild target = jenkins.buildAndAssertSuccess(project);
+        addExplanation(build, COMPILATION_ERROR);
+
+        // a new instance reads the file
+        SimilarityIndex reloaded = new SimilarityIndex();
+        assertNotNull(reloaded.findSimilar(COMPILATION_ERROR, 0.9, target));
+
+        build.delete();
+        assertNull(SimilarityIndex.get().findSimilar(COMPILATION_ERROR, 0.9, target));
+        assertNull(new SimilarityIndex().findSimilar(COMPILATION_ERROR, 0.9, target));
+    }
+
+    private static void addExplanation(FreeStyleBuild build, String errorLogs) throws Exception {
+        build.addOrReplaceAction(new ErrorExplanationAction("explanation of " + build.getNumber(), errorLogs, "Test"));
+        build.save();
+        SimilarityIndex.get().add(build.getExternalizableId(), errorLogs);
+    }
+}
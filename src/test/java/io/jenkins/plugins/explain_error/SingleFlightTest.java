@@ -0,0 +1,95 @@
+package io.jenkins.plugins.explain_error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareResult() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.run("run", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "explanation";
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(singleFlight.isInFlight("run"));
+            Future<String> second = executor.submit(() -> singleFlight.run("run", () -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            // give the second caller time to join the first one
+            Thread.sleep(200);
+            release.countDown();
+            assertEquals("explanation", first.get(10, TimeUnit.SECONDS));
+            assertEquals("explanation", second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureIsShared() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        ExplanationException failure = new ExplanationException("error", "failed");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.run("run", () -> {
+                started.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Thread waiter = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            });
+            waiter.start();
+            ExplanationException e = assertThrows(ExplanationException.class, () -> singleFlight.run("run", () -> "other"));
+            assertSame(failure, e);
+            assertThrows(Exception.class, () -> first.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws ExplanationException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExplanationException("error", "interrupted", e);
+        }
+    }
+
+    @Test
+    void testSequentialCallsAreNotShared() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        assertEquals("1", singleFlight.run("run", () -> "1"));
+        assertEquals("2", singleFlight.run("run", () -> "2"));
+    }
+}
@@ -0,0 +1,57 @@
+package io.jenkins.plugins.explain_error.provider;
+
+import dev.langchain4j.model.input.Prompt;
+import hudson.util.Secret;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the work done for every provider request before anything is sent: rendering the prompt and getting
+ * the assistant, either reused or created for each request.
+ */
+@JmhBenchmark
+public class PromptBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class JenkinsState extends JmhBenchmarkState {
+        /**
+         * Characters of error logs in the prompt.
+         */
+        @Param({"1000", "20000", "200000"})
+        public int errorLogChars;
+
+        String errorLogs;
+        OpenAIProvider provider;
+
+        @Override
+        public void setup() throws Exception {
+            StringBuilder sb = new StringBuilder(errorLogChars + 100);
+            int line = 0;
+            while (sb.length() < errorLogChars) {
+                sb.append("[ERROR] Failed to execute goal on project module-").append(line++)
+                        .append(": Could not resolve dependencies\n");
+            }
+            errorLogs = sb.toString();
+            provider = new OpenAIProvider("https://localhost:1234", "gpt-4", Secret.fromString("benchmark-key"));
+        }
+    }
+
+    @Benchmark
+    public Prompt renderPrompt(JenkinsState state) {
+        return BaseAIProvider.createPrompt(state.errorLogs);
+    }
+
+    @Benchmark
+    public BaseAIProvider.Assistant reusedAssistant(JenkinsState state) {
+        return state.provider.getAssistant();
+    }
+
+    @Benchmark
+    public BaseAIProvider.Assistant newAssistant(JenkinsState state) {
+        return state.provider.createAssistant();
+    }
+}
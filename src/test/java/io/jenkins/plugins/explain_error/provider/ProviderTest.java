@@ -60,6 +60,39 @@ class ProviderTest {
         assertEquals("API request failed: Request failed.", result.getMessage());
     }
 
+    @Test
+    void testAssistantIsReused() throws ExplanationException {
+        TestProvider provider = new TestProvider();
+        provider.explainError("Build failed", null);
+        provider.explainError("Build failed again", null);
+        assertEquals(1, provider.getCreateAssistantCount());
+        assertEquals(2, provider.getCallCount());
+    }
+
+    @Test
+    void testAssistantIsRecreatedOnConfigChange() throws ExplanationException {
+        TestProvider provider = new TestProvider();
+        provider.explainError("Build failed", null);
+        provider.setModel("other-model");
+        provider.explainError("Build failed", null);
+        assertEquals(2, provider.getCreateAssistantCount());
+        provider.setApiKey(Secret.fromString("other-key"));
+        provider.explainError("Build failed", null);
+        assertEquals(3, provider.getCreateAssistantCount());
+        provider.invalidateAssistant();
+        provider.explainError("Build failed", null);
+        assertEquals(4, provider.getCreateAssistantCount());
+    }
+
+    @Test
+    void testTokenConsumerWithoutStreamingSupport() throws ExplanationException {
+        TestProvider provider = new TestProvider();
+        StringBuilder tokens = new StringBuilder();
+        String result = provider.explainError("Build failed", null, tokens::append);
+        assertEquals("Request was successful", result);
+        assertEquals("Request was successful", tokens.toString());
+    }
+
     @Test
     void testOpenAIWithNullApiKey() {
         BaseAIProvider provider = new OpenAIProvider(null, "test-model", null);
@@ -155,4 +188,29 @@ class ProviderTest {
 
         assertEquals("The provider is not properly configured.", result.getMessage());
     }
+
+    @Test
+    void testOllamaNumCtxSizedToPrompt() {
+        OllamaProvider provider = new OllamaProvider("http://localhost:1234", "test-model");
+        assertEquals(2048, provider.getNumCtx(0));
+        assertEquals(2048, provider.getNumCtx(1024));
+        assertEquals(4096, provider.getNumCtx(1025));
+        assertEquals(8192, provider.getNumCtx(5000));
+        // capped by the context length of the model
+        assertEquals(8192, provider.getNumCtx(100_000));
+        provider.setContextLength(32768);
+        assertEquals(32768, provider.getNumCtx(100_000));
+        provider.setContextLength(1000);
+        assertEquals(1000, provider.getNumCtx(0));
+    }
+
+    @Test
+    void testOllamaKeepAlive() {
+        OllamaProvider provider = new OllamaProvider("http://localhost:1234", "test-model");
+        assertEquals("30m", provider.getKeepAlive());
+        provider.setKeepAlive(" -1 ");
+        assertEquals("-1", provider.getKeepAlive());
+        provider.setKeepAlive("");
+        assertEquals("30m", provider.getKeepAlive());
+    }
 }
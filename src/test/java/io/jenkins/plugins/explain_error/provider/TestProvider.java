@@ -1,8 +1,10 @@
 package io.jenkins.plugins.explain_error.provider;
 
+import dev.langchain4j.model.chat.StreamingChatModel;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.util.Secret;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -10,7 +12,8 @@ public class TestProvider extends OpenAIProvider {
 
     private boolean throwError = false;
     private String answerMessage = "Request was successful";
-    private int callCount = 0;
+    private final AtomicInteger callCount = new AtomicInteger();
+    private int createAssistantCount = 0;
 
     @DataBoundConstructor
     public TestProvider() {
@@ -19,28 +22,37 @@ public class TestProvider extends OpenAIProvider {
 
     @Override
     public Assistant createAssistant() {
+        createAssistantCount++;
         return new Assistant() {
             @Override
             public String chat(String message) {
                 if (throwError) {
                     throw new RuntimeException("Request failed.");
                 }
-                callCount++;
+                callCount.incrementAndGet();
                 return answerMessage;
             }
         };
     }
 
+    @Override
+    public StreamingChatModel createStreamingChatModel() {
+        // answers are delivered at once
+        return null;
+    }
+
     public void setThrowError(boolean throwError) {
         this.throwError = throwError;
     }
 
     public void setApiKey(Secret apiKey) {
         this.apiKey = apiKey;
+        invalidateAssistant();
     }
 
     public void setModel(String model) {
         this.model = model;
+        invalidateAssistant();
     }
 
     public void setAnswerMessage(String answerMessage) {
@@ -48,7 +60,11 @@ public class TestProvider extends OpenAIProvider {
     }
 
     public int getCallCount() {
-        return callCount;
+        return callCount.get();
+    }
+
+    public int getCreateAssistantCount() {
+        return createAssistantCount;
     }
 
     @Extension